@@ -0,0 +1,119 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import uni.robot.base.SyncInstructionManager;
+
+/**
+ * Microbenchmark que compara las implementaciones QUEUE y RING_BUFFER de {@link SyncInstructionManager}
+ * (ver la clave instruction_manager de config.properties).
+ * <p>
+ * Un hilo consumidor responde los mensajes lo mas rapido posible, mientras uno o mas hilos productores mandan
+ * mensajes sincronos, lotes y mensajes asincronos. Se mide el tiempo promedio por mensaje.
+ * <p>
+ * Uso: java InstructionBenchmark [mensajes por productor]
+ * 
+ * @author Fabio Kita
+ * 
+ */
+public class InstructionBenchmark {
+	private static final int DEFAULT_MESSAGES = 200_000;
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int BATCH_SIZE = 8;
+	private static final int[] PRODUCER_COUNTS = {1, 4};
+	
+	public static void main(String[] args) throws Exception {
+		int messages = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MESSAGES;
+		
+		System.out.println("CPUs: " + Runtime.getRuntime().availableProcessors() + ", mensajes por productor: "
+				+ messages);
+		
+		for(int producers:PRODUCER_COUNTS) {
+			for(int implementation:new int[] {SyncInstructionManager.QUEUE, SyncInstructionManager.RING_BUFFER}) {
+				String name = implementation == SyncInstructionManager.QUEUE ? "QUEUE" : "RING_BUFFER";
+				
+				//Warm up the JIT before measuring
+				for(int i = 0; i < WARMUP_ROUNDS; i++) {
+					run(implementation, producers, messages/10, Mode.SYNC);
+				}
+				
+				for(Mode mode:Mode.values()) {
+					double nanos = run(implementation, producers, messages, mode);
+					System.out.printf("%-11s %-5s productores=%d  %8.1f ns/mensaje%n", name, mode, producers, nanos);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Ejecuta una ronda y retorna el tiempo promedio por mensaje, en nanosegundos.
+	 */
+	private static double run(int implementation, int producers, int messages, Mode mode) throws Exception {
+		SyncInstructionManager.setImplementation(implementation);
+		SyncInstructionManager manager = SyncInstructionManager.create();
+		
+		//Consumer, answers every message with itself
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread consumer = new Thread(() -> {
+			while(running.get()) {
+				Object message = manager.readInstruction();
+				if(message == null) {
+					Thread.onSpinWait();
+					continue;
+				}
+				manager.finishInstruction(message);
+			}
+		}, "Benchmark-Consumer");
+		consumer.setDaemon(true);
+		consumer.start();
+		
+		Thread[] threads = new Thread[producers];
+		for(int i = 0; i < producers; i++) {
+			threads[i] = new Thread(() -> produce(manager, messages, mode), "Benchmark-Producer-" + i);
+		}
+		
+		long start = System.nanoTime();
+		for(Thread thread:threads) {
+			thread.start();
+		}
+		for(Thread thread:threads) {
+			thread.join();
+		}
+		long elapsed = System.nanoTime() - start;
+		
+		running.set(false);
+		consumer.join();
+		
+		return (double) elapsed / ((long) messages*producers);
+	}
+	
+	private static void produce(SyncInstructionManager manager, int messages, Mode mode) {
+		Integer message = 1;
+		switch(mode) {
+			case SYNC:
+				for(int i = 0; i < messages; i++) {
+					manager.sendInstruction(message);
+				}
+				break;
+			case BATCH:
+				Object[] batch = new Object[BATCH_SIZE];
+				for(int i = 0; i < BATCH_SIZE; i++) {
+					batch[i] = message;
+				}
+				for(int i = 0; i < messages; i += BATCH_SIZE) {
+					manager.sendInstructions(batch);
+				}
+				break;
+			case ASYNC:
+				CompletableFuture<Object> last = null;
+				for(int i = 0; i < messages; i++) {
+					last = manager.sendInstructionAsync(message);
+				}
+				if(last != null) last.join();
+				break;
+		}
+	}
+	
+	private enum Mode{
+		SYNC, BATCH, ASYNC
+	}
+}
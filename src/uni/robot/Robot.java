@@ -1,6 +1,7 @@
 package uni.robot;
 
 import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
 
 import uni.robot.game.Direction;
 import uni.robot.game.RobotObject;
@@ -101,6 +102,58 @@ public class Robot extends StubObject implements Serializable{
 		tirarErrorSiHubo(sendInstruction("REMOVE_CONE"));
 	}
 	
+	//ACCIONES ASINCRONAS
+	/**
+	 * Igual que girarIzquierda(), pero sin esperar a que el Robot termine de girar.
+	 * <p>
+	 * Las acciones se ejecutan en el mismo orden en que se mandan, por lo que se pueden mandar varias 
+	 * seguidas.
+	 * 
+	 * @return Un {@link CompletableFuture} que se completa cuando el Robot termina de girar.
+	 */
+	public CompletableFuture<Void> girarIzquierdaAsync() {
+		return sendActionAsync("TURN_LEFT");
+	}
+	
+	/**
+	 * Igual que girarDerecha(), pero sin esperar a que el Robot termine de girar.
+	 * 
+	 * @return Un {@link CompletableFuture} que se completa cuando el Robot termina de girar.
+	 */
+	public CompletableFuture<Void> girarDerechaAsync() {
+		return sendActionAsync("TURN_RIGHT");
+	}
+	
+	/**
+	 * Igual que avanzar(), pero sin esperar a que el Robot llegue a la siguiente esquina.
+	 * 
+	 * @return Un {@link CompletableFuture} que se completa cuando el Robot llega, o que falla si el Robot 
+	 * choca con una pared.
+	 */
+	public CompletableFuture<Void> avanzarAsync() {
+		return sendActionAsync("WALK");
+	}
+	
+	/**
+	 * Igual que ponerCono(), pero sin esperar a que el Robot termine de ponerlo.
+	 * 
+	 * @return Un {@link CompletableFuture} que se completa cuando el Robot pone el cono, o que falla si no le 
+	 * quedan conos.
+	 */
+	public CompletableFuture<Void> ponerConoAsync() {
+		return sendActionAsync("PUT_CONE");
+	}
+	
+	/**
+	 * Igual que guardarCono(), pero sin esperar a que el Robot termine de guardarlo.
+	 * 
+	 * @return Un {@link CompletableFuture} que se completa cuando el Robot guarda el cono, o que falla si no 
+	 * hay ningun cono o si la bolsita esta llena.
+	 */
+	public CompletableFuture<Void> guardarConoAsync() {
+		return sendActionAsync("REMOVE_CONE");
+	}
+	
 	//SENSORES
 	/**
 	 * Devuelve el numero de fila donde este Robot se encuentra.
@@ -184,7 +237,39 @@ public class Robot extends StubObject implements Serializable{
 		return this.robot.getInstructionManager().sendInstruction(message);
 	}
 	
+	/**
+	 * Manda un lote de instrucciones al {@link RobotObject}, esperando una sola vez a que se ejecuten todas,
+	 * en orden.
+	 * <p>
+	 * Las acciones que fallan no lanzan errores, su mensaje de error se encuentra en la respuesta 
+	 * correspondiente.
+	 * 
+	 * @param messages las instrucciones a mandar.
+	 * @return los resultados de ejecutar cada instruccion, en el mismo orden.
+	 */
+	protected Object[] sendInstructions(Object... messages) {
+		return this.robot.getInstructionManager().sendInstructions(messages);
+	}
+	
+	/**
+	 * Manda una instruccion al {@link RobotObject} sin esperar a que se ejecute.
+	 * 
+	 * @param message la instruccion a mandar.
+	 * @return un {@link CompletableFuture} con el resultado de ejecutar la instruccion.
+	 */
+	protected CompletableFuture<Object> sendInstructionAsync(Object message) {
+		return this.robot.getInstructionManager().sendInstructionAsync(message);
+	}
+	
 	//METODOS PRIVADOS
+	/**
+	 * Manda una accion asincrona. El resultado se traduce fuera del hilo del juego, para que las acciones 
+	 * encadenadas al future nunca corran dentro del ciclo de juego.
+	 */
+	private CompletableFuture<Void> sendActionAsync(String message) {
+		return sendInstructionAsync(message).thenAcceptAsync(this::tirarErrorSiHubo);
+	}
+	
 	private void tirarErrorSiHubo(Object response) {
 		String message = (String) response;
 		if(message != null) throw new RuntimeException(message);
@@ -4,6 +4,8 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.util.Properties;
 
+import uni.robot.base.SyncInstructionManager;
+import uni.robot.game.GridStorage;
 import uni.robot.game.RobotLoop;
 
 /**
@@ -20,7 +22,7 @@ public class RobotGame{
 	 * Consigue el {@link RobotLoop}. Se crea uno nuevo si no existe.
 	 * @return
 	 */
-	public static RobotLoop getRobotLoop() {
+	public static synchronized RobotLoop getRobotLoop() {
 		if(loop == null) {
 			loop = readPropertiesAndCreateNewLoop();
 			loop.startGameLoop();
@@ -36,12 +38,18 @@ public class RobotGame{
 		Properties props = new Properties();
 		
 		final String DEFAULT_UI_SCALING = "1.0";
+		final boolean DEFAULT_HEADLESS = false;
 		
 		final String DEFAULT_ASSETS_PATH = "uni/assets/";
 		
 		final boolean DEFAULT_SHOW_SPEED_PANEL = true;
 		final int DEFAULT_INITIAL_MODE = RobotLoop.PAUSED;
 		
+		final int DEFAULT_INSTRUCTION_MANAGER = SyncInstructionManager.QUEUE;
+		final int DEFAULT_GRID_STORAGE = GridStorage.HEAP;
+		
+		final boolean DEFAULT_PARALLEL_UPDATE = true;
+		
 		final int DEFAULT_UPS = 60;
 		final int DEFAULT_FPS = 60;
 		
@@ -49,11 +57,13 @@ public class RobotGame{
 		final int DEFAULT_PLAY_MODE_UPDATE_COUNTS_NORMAL = 1;
 		final int DEFAULT_PLAY_MODE_UPDATE_COUNTS_FF = 20;
 		final int DEFAULT_PLAY_MODE_UPDATE_COUNTS_FFF = 100;
+		final int DEFAULT_PLAY_MODE_UPDATE_COUNTS_INSTANT = 1;
 		final int[] DEFAULT_PLAY_MODE_UPDATE_COUNTS = {
 				DEFAULT_PLAY_MODE_UPDATE_COUNTS_PAUSED, 
 				DEFAULT_PLAY_MODE_UPDATE_COUNTS_NORMAL, 
 				DEFAULT_PLAY_MODE_UPDATE_COUNTS_FF, 
-				DEFAULT_PLAY_MODE_UPDATE_COUNTS_FFF
+				DEFAULT_PLAY_MODE_UPDATE_COUNTS_FFF,
+				DEFAULT_PLAY_MODE_UPDATE_COUNTS_INSTANT
 			};
 		
 		try(FileInputStream in = new FileInputStream(CONFIG_FILE)){
@@ -63,12 +73,20 @@ public class RobotGame{
 			String assetsPath = props.getProperty("root_assets_path", DEFAULT_ASSETS_PATH);
 			
 			String uiScaling = props.getProperty("image_scaling", DEFAULT_UI_SCALING);
+			boolean headless = readBool(props, "headless", DEFAULT_HEADLESS);
 			
-			boolean showSpeedPanel = readBool(props, "show_speed_panel", DEFAULT_SHOW_SPEED_PANEL);
+			//There's no speed panel without windows
+			boolean showSpeedPanel = readBool(props, "show_speed_panel", DEFAULT_SHOW_SPEED_PANEL) && !headless;
 			
 			int initialSpeed = readSpeed(props, "initial_speed", DEFAULT_INITIAL_MODE);
 			if(initialSpeed == RobotLoop.PAUSED && showSpeedPanel == false) initialSpeed = RobotLoop.NORMAL;
 			
+			int instructionManager = readInstructionManager(props, "instruction_manager", 
+					DEFAULT_INSTRUCTION_MANAGER);
+			int gridStorage = readGridStorage(props, "grid_storage", DEFAULT_GRID_STORAGE);
+			
+			boolean parallelUpdate = readBool(props, "parallel_update", DEFAULT_PARALLEL_UPDATE);
+			
 			int ups = readInt(props, "ups", DEFAULT_UPS);
 			int fps = readInt(props, "fps", DEFAULT_FPS);
 			
@@ -77,15 +95,24 @@ public class RobotGame{
 				readInt(props, "normal_update_count", DEFAULT_PLAY_MODE_UPDATE_COUNTS_NORMAL),
 				readInt(props, "fast_forward_update_count", DEFAULT_PLAY_MODE_UPDATE_COUNTS_FF),
 				readInt(props, "fast_fast_forward_update_count", DEFAULT_PLAY_MODE_UPDATE_COUNTS_FFF),
+				readInt(props, "instant_update_count", DEFAULT_PLAY_MODE_UPDATE_COUNTS_INSTANT),
 			};
 			
 			//Set values
 			setUiScaling(uiScaling);
-			return new RobotLoop(assetsPath, showSpeedPanel, initialSpeed, playModeUpdateCounts, ups, fps);
+			setHeadless(headless);
+			SyncInstructionManager.setImplementation(instructionManager);
+			GridStorage.setImplementation(gridStorage);
+			RobotLoop newLoop = new RobotLoop(assetsPath, showSpeedPanel, initialSpeed, playModeUpdateCounts, 
+					ups, fps);
+			newLoop.setParallelUpdate(parallelUpdate);
+			return newLoop;
 		} catch (FileNotFoundException e) {
 			//RETURN DEFAULT VALUES
 			setUiScaling(DEFAULT_UI_SCALING);
-			return new RobotLoop(
+			SyncInstructionManager.setImplementation(DEFAULT_INSTRUCTION_MANAGER);
+			GridStorage.setImplementation(DEFAULT_GRID_STORAGE);
+			RobotLoop newLoop = new RobotLoop(
 					DEFAULT_ASSETS_PATH, 
 					DEFAULT_SHOW_SPEED_PANEL, 
 					DEFAULT_INITIAL_MODE, 
@@ -93,13 +120,17 @@ public class RobotGame{
 					DEFAULT_UPS, 
 					DEFAULT_FPS
 				);
+			newLoop.setParallelUpdate(DEFAULT_PARALLEL_UPDATE);
+			return newLoop;
 		} catch (Exception e) {
 			System.err.println("Error loading " + CONFIG_FILE + " file." + 
 					e.getMessage() + " Using default values.");
 			
 			//RETURN DEFAULT VALUES
 			setUiScaling(DEFAULT_UI_SCALING);
-			return new RobotLoop(
+			SyncInstructionManager.setImplementation(DEFAULT_INSTRUCTION_MANAGER);
+			GridStorage.setImplementation(DEFAULT_GRID_STORAGE);
+			RobotLoop newLoop = new RobotLoop(
 					DEFAULT_ASSETS_PATH, 
 					DEFAULT_SHOW_SPEED_PANEL, 
 					DEFAULT_INITIAL_MODE, 
@@ -107,6 +138,8 @@ public class RobotGame{
 					DEFAULT_UPS, 
 					DEFAULT_FPS
 				);
+			newLoop.setParallelUpdate(DEFAULT_PARALLEL_UPDATE);
+			return newLoop;
 		}
 	}
 	
@@ -114,6 +147,14 @@ public class RobotGame{
 		System.setProperty("sun.java2d.uiScale", value);
 	}
 	
+	/**
+	 * Activa el modo headless de AWT. En este modo los {@link Mundo} no crean ventanas ni se dibujan, y 
+	 * solo se simula la logica de los robots. Debe de ser llamado antes de crear cualquier ventana.
+	 */
+	private static void setHeadless(boolean headless) {
+		if(headless) System.setProperty("java.awt.headless", "true");
+	}
+	
 	private static int readInt(Properties props, String key, int defaultValue) {
 		try {
 			String value = props.getProperty(key);
@@ -140,6 +181,35 @@ public class RobotGame{
 			case "NORMAL": return RobotLoop.NORMAL;
 			case "FAST_FORWARD": return RobotLoop.FAST_FORWARD;
 			case "FAST_FAST_FORWARD": return RobotLoop.FAST_FAST_FORWARD;
+			case "INSTANT": return RobotLoop.INSTANT;
+			default: {
+				System.err.println("Invalid value for " + key + ", using default value.");
+				return defaultValue;
+			}
+		}
+	}
+	
+	private static int readInstructionManager(Properties props, String key, int defaultValue) {
+		String value = props.getProperty(key);
+		if(value == null) return defaultValue;
+		
+		switch(value){
+			case "QUEUE": return SyncInstructionManager.QUEUE;
+			case "RING_BUFFER": return SyncInstructionManager.RING_BUFFER;
+			default: {
+				System.err.println("Invalid value for " + key + ", using default value.");
+				return defaultValue;
+			}
+		}
+	}
+	
+	private static int readGridStorage(Properties props, String key, int defaultValue) {
+		String value = props.getProperty(key);
+		if(value == null) return defaultValue;
+		
+		switch(value){
+			case "HEAP": return GridStorage.HEAP;
+			case "OFF_HEAP": return GridStorage.OFF_HEAP;
 			default: {
 				System.err.println("Invalid value for " + key + ", using default value.");
 				return defaultValue;
@@ -0,0 +1,109 @@
+package uni.robot;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Objeto que ejecuta los programas de uno o mas {@link Robot}, cada uno en su propio hilo virtual.
+ * <p>
+ * Los hilos virtuales requieren Java 21. En versiones anteriores, los programas se ejecutan en hilos del 
+ * sistema de un pool que crece segun haga falta.
+ * <p>
+ * Un hilo virtual que espera a que un Robot termine una accion no ocupa un hilo del sistema operativo, por lo
+ * que se pueden ejecutar miles de programas de Robot al mismo tiempo, por ejemplo:
+ * <p>
+ * <pre>
+ * try(RobotRunner runner = new RobotRunner()) {
+ * 	for(Robot robot:mundo.getRobots()) {
+ * 		runner.start(() -> recorrer(robot));
+ * 	}
+ * 	runner.join();
+ * }
+ * </pre>
+ * 
+ * @author Fabio Kita
+ * 
+ */
+public class RobotRunner implements AutoCloseable{
+	private final ExecutorService executor;
+	private final Queue<Future<?>> programs;
+	
+	public RobotRunner() {
+		this.executor = createExecutor();
+		this.programs = new ConcurrentLinkedQueue<>();
+	}
+	
+	/**
+	 * Comienza a ejecutar un programa en un hilo virtual nuevo.
+	 * 
+	 * @param program el programa a ejecutar
+	 * @return un {@link Future} que se completa cuando el programa termina
+	 */
+	public Future<?> start(Runnable program) {
+		Future<?> future = executor.submit(program);
+		programs.add(future);
+		return future;
+	}
+	
+	/**
+	 * Espera a que terminen todos los programas comenzados hasta el momento.
+	 * <p>
+	 * Si algun programa lanzo un error, se lanza el primero de ellos luego de que todos terminen.
+	 */
+	public void join() {
+		RuntimeException error = null;
+		
+		Future<?> program;
+		while((program = programs.poll()) != null) {
+			try {
+				program.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while waiting for the robot programs.", e);
+			} catch (ExecutionException e) {
+				if(error == null) error = new RuntimeException(e.getCause().getMessage(), e.getCause());
+			}
+		}
+		
+		if(error != null) throw error;
+	}
+	
+	/**
+	 * Espera a que terminen todos los programas y libera el ejecutor.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+		
+		//Interrupts don't stop the wait, like ExecutorService.close(), but the flag is restored at the end
+		boolean interrupted = false;
+		for(;;) {
+			try {
+				if(executor.awaitTermination(1, TimeUnit.DAYS)) break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if(interrupted) Thread.currentThread().interrupt();
+	}
+	
+	//PRIVATE METHODS
+	/**
+	 * Crea un ejecutor de hilos virtuales si la version de Java lo permite (21 o superior), o un pool de hilos 
+	 * del sistema si no. Se busca por reflexion para que el proyecto compile con versiones anteriores.
+	 * 
+	 * @return el ejecutor
+	 */
+	private static ExecutorService createExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+}
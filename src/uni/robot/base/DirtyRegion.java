@@ -0,0 +1,352 @@
+package uni.robot.base;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Region de una ventana que requiere redibujo, guardada como un conjunto de baldosas de una grilla, en lugar
+ * de un solo rectangulo que une todo. Las baldosas se guardan como llaves long en un arreglo que se ordena al 
+ * llenarse, por lo que agregar baldosas no crea objetos.
+ * <p>
+ * Al convertirse en rectangulos con toRectangles(), las baldosas se unen primero en filas y luego en bloques,
+ * y finalmente se unen los rectangulos cuya union casi no agrega area, ya que cada rectangulo tiene un costo
+ * fijo de repintado. Asi, dos objetos en esquinas opuestas de la ventana repintan dos regiones chicas, y no
+ * toda la ventana.
+ * <p>
+ * No es sincronizado.
+ * 
+ * @author Fabio Kita
+ * 
+ */
+class DirtyRegion {
+	//Bigger rectangles are kept as they are, instead of as tiles
+	private static final int MAX_TILES_PER_RECT = 1024;
+	
+	//Fixed cost of repainting one more rectangle, in tiles of area
+	private static final int REGION_COST_TILES = 4;
+	
+	//With more rectangles than this, the region is repainted as a single rectangle
+	private static final int MAX_REGIONS = 64;
+	
+	private static final int INITIAL_CAPACITY = 64;
+	
+	//Best merge that must be searched again
+	private static final int OUTDATED = -2;
+	
+	private final int tileSize;
+	private final int padding;
+	private final List<Rectangle> bigRects;
+	
+	//Tile keys, sorted and without duplicates up to sortedSize, then appended as they come
+	private long[] tiles;
+	private int tileCount = 0;
+	private int sortedSize = 0;
+	
+	//Blocks of the previous and the current row of tiles, reused by mergeTiles()
+	private List<Rectangle> previousRow;
+	private List<Rectangle> currentRow;
+	
+	//Best merge of each region, reused by mergeRegions()
+	private int[] bestPartners;
+	private long[] bestCosts;
+	
+	/**
+	 * Crea una region vacia.
+	 * 
+	 * @param tileSize el tamanho de las baldosas de la grilla, en pixeles
+	 * @param padding los pixeles que se agregan alrededor de cada rectangulo agregado
+	 */
+	public DirtyRegion(int tileSize, int padding) {
+		this.tileSize = tileSize;
+		this.padding = padding;
+		this.bigRects = new ArrayList<>();
+		this.tiles = new long[INITIAL_CAPACITY];
+		this.previousRow = new ArrayList<>();
+		this.currentRow = new ArrayList<>();
+		this.bestPartners = new int[MAX_REGIONS];
+		this.bestCosts = new long[MAX_REGIONS];
+	}
+	
+	/**
+	 * Agrega todas las baldosas que toca el rectangulo, agrandado por el padding.
+	 * 
+	 * @param x la posicion x del rectangulo que requiere redibujo
+	 * @param y la posicion y del rectangulo que requiere redibujo
+	 * @param width el ancho del rectangulo que requiere redibujo
+	 * @param height el alto del rectangulo que requiere redibujo
+	 */
+	public void add(int x, int y, int width, int height) {
+		if(width <= 0 || height <= 0) return;
+		
+		int minTileX = Math.floorDiv(x - padding, tileSize);
+		int minTileY = Math.floorDiv(y - padding, tileSize);
+		int maxTileX = Math.floorDiv(x + width + padding - 1, tileSize);
+		int maxTileY = Math.floorDiv(y + height + padding - 1, tileSize);
+		
+		if((long) (maxTileX - minTileX + 1) * (maxTileY - minTileY + 1) > MAX_TILES_PER_RECT) {
+			bigRects.add(toRectangle(minTileX, minTileY, maxTileX, maxTileY));
+			return;
+		}
+		
+		for(int tileY = minTileY; tileY <= maxTileY; tileY++) {
+			for(int tileX = minTileX; tileX <= maxTileX; tileX++) {
+				addTile(toTileKey(tileX, tileY));
+			}
+		}
+	}
+	
+	/**
+	 * Retorna si la region esta vacia.
+	 * 
+	 * @return si la region esta vacia
+	 */
+	public boolean isEmpty() {
+		return tileCount == 0 && bigRects.isEmpty();
+	}
+	
+	/**
+	 * Vacia la region, conservando su memoria para volver a usarla.
+	 */
+	public void clear() {
+		tileCount = 0;
+		sortedSize = 0;
+		bigRects.clear();
+	}
+	
+	/**
+	 * Convierte la region en una lista de rectangulos alineados a la grilla, que cubren todas las baldosas.
+	 * 
+	 * @return la lista de rectangulos, vacia si la region esta vacia
+	 */
+	public List<Rectangle> toRectangles() {
+		List<Rectangle> regions = mergeTiles();
+		regions.addAll(bigRects);
+		
+		//Too many regions, repainting each of them costs more than repainting everything once
+		if(regions.size() > MAX_REGIONS) {
+			Rectangle bounds = regions.get(0);
+			for(Rectangle region:regions) {
+				bounds.add(region);
+			}
+			regions.clear();
+			regions.add(bounds);
+			return regions;
+		}
+		
+		mergeRegions(regions);
+		return regions;
+	}
+	
+	//PRIVATE METHODS
+	/**
+	 * Agrega la llave de una baldosa. Si el arreglo se llena, primero lo ordena y quita las repetidas, y solo 
+	 * lo agranda si sigue casi lleno.
+	 */
+	private void addTile(long key) {
+		if(tileCount == tiles.length) {
+			sortTiles();
+			if(tileCount > tiles.length/2) tiles = Arrays.copyOf(tiles, tiles.length*2);
+		}
+		tiles[tileCount++] = key;
+	}
+	
+	/**
+	 * Ordena las llaves de las baldosas segun fila y columna, y quita las repetidas.
+	 */
+	private void sortTiles() {
+		if(sortedSize == tileCount) return;
+		
+		Arrays.sort(tiles, 0, tileCount);
+		int j = 0;
+		for(int i = 0; i < tileCount; i++) {
+			if(j == 0 || tiles[i] != tiles[j-1]) tiles[j++] = tiles[i];
+		}
+		tileCount = j;
+		sortedSize = j;
+	}
+	
+	/**
+	 * Une las baldosas en filas horizontales, y luego las filas de igual posicion y ancho que estan una
+	 * debajo de la otra.
+	 * 
+	 * @return la lista de rectangulos
+	 */
+	private List<Rectangle> mergeTiles() {
+		List<Rectangle> regions = new ArrayList<>();
+		if(tileCount == 0) return regions;
+		
+		//Sorted by row and then column
+		sortTiles();
+		
+		//Blocks that reached the row above, sorted by x, which could grow with the next row
+		previousRow.clear();
+		currentRow.clear();
+		int previousIndex = 0;
+		int rowY = toTileY(tiles[0]);
+		
+		int i = 0;
+		while(i < tileCount) {
+			//Find a horizontal run of tiles
+			int tileY = toTileY(tiles[i]);
+			int startX = toTileX(tiles[i]);
+			int endX = startX;
+			i++;
+			while(i < tileCount && toTileY(tiles[i]) == tileY && toTileX(tiles[i]) == endX + 1) {
+				endX++;
+				i++;
+			}
+			
+			//Next row, only the blocks of the row right above can grow
+			if(tileY != rowY) {
+				List<Rectangle> swap = previousRow;
+				previousRow = currentRow;
+				currentRow = swap;
+				currentRow.clear();
+				if(tileY != rowY + 1) previousRow.clear();
+				previousIndex = 0;
+				rowY = tileY;
+			}
+			
+			//Grow the block right above with the same start and width, or start a new one
+			int x = startX*tileSize;
+			int width = (endX - startX + 1)*tileSize;
+			while(previousIndex < previousRow.size() && previousRow.get(previousIndex).x < x) previousIndex++;
+			
+			Rectangle block = previousIndex < previousRow.size() ? previousRow.get(previousIndex) : null;
+			if(block != null && block.x == x && block.width == width) {
+				block.height += tileSize;
+			}else {
+				block = toRectangle(startX, tileY, endX, tileY);
+				regions.add(block);
+			}
+			currentRow.add(block);
+		}
+		
+		previousRow.clear();
+		currentRow.clear();
+		return regions;
+	}
+	
+	/**
+	 * Une de a pares los rectangulos cuya union cuesta menos que repintarlos por separado, empezando por el
+	 * par mas barato, hasta que ninguna union convenga.
+	 * <p>
+	 * Cada rectangulo recuerda su union mas barata, por lo que cada union solo recalcula los rectangulos 
+	 * afectados por ella.
+	 * 
+	 * @param regions la lista de rectangulos, que es modificada
+	 */
+	private void mergeRegions(List<Rectangle> regions) {
+		long regionCost = (long) REGION_COST_TILES * tileSize * tileSize;
+		
+		for(int a = 0; a < regions.size(); a++) {
+			updateBestMerge(regions, a);
+		}
+		
+		while(regions.size() > 1) {
+			int bestA = -1;
+			long bestCost = regionCost;
+			for(int a = 0; a < regions.size(); a++) {
+				if(bestPartners[a] >= 0 && bestCosts[a] <= bestCost) {
+					bestA = a;
+					bestCost = bestCosts[a];
+				}
+			}
+			
+			if(bestA < 0) return;
+			int bestB = bestPartners[bestA];
+			
+			//Regions whose best merge was one of the merged regions look again
+			for(int a = 0; a < regions.size(); a++) {
+				if(bestPartners[a] == bestA || bestPartners[a] == bestB) bestPartners[a] = OUTDATED;
+			}
+			
+			//Merge into bestA, and move the last region into the place of bestB
+			regions.get(bestA).add(regions.get(bestB));
+			int last = regions.size() - 1;
+			regions.set(bestB, regions.get(last));
+			regions.remove(last);
+			bestPartners[bestB] = bestPartners[last];
+			bestCosts[bestB] = bestCosts[last];
+			if(bestA == last) bestA = bestB;
+			
+			for(int a = 0; a < regions.size(); a++) {
+				if(bestPartners[a] == last) bestPartners[a] = bestB;
+			}
+			
+			//The others only compare with the merged region
+			Rectangle merged = regions.get(bestA);
+			for(int a = 0; a < regions.size(); a++) {
+				if(a == bestA) continue;
+				
+				if(bestPartners[a] == OUTDATED) {
+					updateBestMerge(regions, a);
+					continue;
+				}
+				
+				long cost = mergeCost(regions.get(a), merged);
+				if(bestPartners[a] < 0 || cost < bestCosts[a]) {
+					bestPartners[a] = bestA;
+					bestCosts[a] = cost;
+				}
+			}
+			updateBestMerge(regions, bestA);
+		}
+	}
+	
+	/**
+	 * Busca la union mas barata del rectangulo pasado con cualquier otro.
+	 */
+	private void updateBestMerge(List<Rectangle> regions, int a) {
+		int bestPartner = -1;
+		long bestCost = Long.MAX_VALUE;
+		Rectangle rect = regions.get(a);
+		for(int b = 0; b < regions.size(); b++) {
+			if(b == a) continue;
+			long cost = mergeCost(rect, regions.get(b));
+			if(cost < bestCost) {
+				bestPartner = b;
+				bestCost = cost;
+			}
+		}
+		bestPartners[a] = bestPartner;
+		bestCosts[a] = bestCost;
+	}
+	
+	/**
+	 * Retorna el area que se repintaria de mas al unir los dos rectangulos.
+	 */
+	private static long mergeCost(Rectangle a, Rectangle b) {
+		long unionWidth = Math.max(a.x + a.width, b.x + b.width) - Math.min(a.x, b.x);
+		long unionHeight = Math.max(a.y + a.height, b.y + b.height) - Math.min(a.y, b.y);
+		return unionWidth*unionHeight - area(a) - area(b);
+	}
+	
+	private static long area(Rectangle rect) {
+		return (long) rect.width * rect.height;
+	}
+	
+	private Rectangle toRectangle(int minTileX, int minTileY, int maxTileX, int maxTileY) {
+		return new Rectangle(
+				minTileX*tileSize,
+				minTileY*tileSize,
+				(maxTileX - minTileX + 1)*tileSize,
+				(maxTileY - minTileY + 1)*tileSize
+			);
+	}
+	
+	//Sorting the keys sorts the tiles by row and then column, the sign of x is flipped to keep negatives first
+	private static long toTileKey(int tileX, int tileY) {
+		return ((long) tileY << 32) | ((tileX ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+	}
+	
+	private static int toTileX(long key) {
+		return (int) key ^ Integer.MIN_VALUE;
+	}
+	
+	private static int toTileY(long key) {
+		return (int) (key >> 32);
+	}
+}
@@ -4,12 +4,26 @@ import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Set;
 
 /**
  * Objeto responsable de dibujar y obtimizar dibujo dentro de {@link GameWindow}
+ * <p>
+ * Es compartido por dos hilos:<p>
+ * 	- El hilo de simulacion ejecuta los metodos onDraw() con captureDrawStates() y deja los 
+ * 	  {@link ObjectDrawState} nuevos como pendientes.<p>
+ * 	- El hilo de dibujo aplica los estados pendientes con applyPendingDrawStates(), y el hilo de Swing dibuja 
+ * 	  los estados aplicados con drawObjects(). Ninguno de los dos toca los {@link GameObject}.<p>
+ * <p>
+ * Las regiones a redibujar se acumulan en un {@link DirtyRegion}, por lo que solo se repinta lo que cambio, 
+ * aunque los cambios esten lejos entre si.
+ * <p>
+ * Los estados aplicados se guardan en un {@link DrawStateIndex}, por lo que dibujar una region solo recorre los 
+ * estados que estan dentro de ella, y ya ordenados segun z-index.
  * 
  * @author Fabio Kita
  *
@@ -18,88 +32,180 @@ class DrawManager {
 	private static final int PADDING = 1;
 	private static final int DRAW_GRID_SIZE = 32;
 	
+	//SIMULATION SIDE, guarded by pendingLock
+	private final Object pendingLock = new Object();
+	private Map<Integer, ObjectDrawState> pendingStates;
+	private Set<Integer> pendingRemovals;
+	
 	//Acumulador de region de dinujos
-	private Rectangle accDrawRect;
+	private DirtyRegion dirtyRegion;
+	
+	//RENDER SIDE, the containers being applied, swapped with the pending ones and cleared to be reused
+	private Map<Integer, ObjectDrawState> applyingStates;
+	private Set<Integer> applyingRemovals;
+	private DirtyRegion applyingRegion;
+	
+	//Guarded by this
+	private final DrawStateIndex renderStates;
+	
+	//Reused by drawObjects()
+	private final List<ObjectDrawState> visibleStates;
 	
 	//DEBUG
 	public static final boolean DEBUG_DRAW_RECT = false;
-	private Rectangle debugDrawRect;
+	private List<Rectangle> debugRegions;
 	private Rectangle debugGridRect;
 	
-	public DrawManager() {
-		this.accDrawRect = null;
+	public DrawManager(int width, int height) {
+		this.pendingStates = new HashMap<>();
+		this.pendingRemovals = new HashSet<>();
+		this.dirtyRegion = new DirtyRegion(DRAW_GRID_SIZE, PADDING);
+		this.applyingStates = new HashMap<>();
+		this.applyingRemovals = new HashSet<>();
+		this.applyingRegion = new DirtyRegion(DRAW_GRID_SIZE, PADDING);
+		this.renderStates = new DrawStateIndex(width, height);
+		this.visibleStates = new ArrayList<>();
 	}
 	
 	/**
-	 * Agrega a accDrawRect un rectangulo que representa la region dentro de la ventana a redibujar.
+	 * Ejecuta los metodos onDraw() de todos los {@link GameObject}, deja sus nuevos {@link ObjectDrawState} 
+	 * como pendientes y agrega las regiones que requiere redibujo dentro de dirtyRegion.
+	 * <p>
+	 * Metodo exclusivo para el hilo de simulacion.
 	 * 
-	 * @param drawRect la region que requiere redibujar
+	 * @param objects La lista de {@link GameObject}
 	 */
-	public void addDrawRegion(Rectangle drawRect) {
-		if(drawRect == null) return;
+	public void captureDrawStates(Collection<GameObject> objects) {
+		synchronized(pendingLock) {
+			for(GameObject object:objects) {
+				if(!object.executeOnDraw(dirtyRegion)) continue;
 		
-		if(this.accDrawRect == null) this.accDrawRect = drawRect;
-		else this.accDrawRect.add(drawRect);
+				this.putPendingState(object.getDrawState());
+				pendingRemovals.remove(object.getId());
+			}
+		}
 	}
 	
 	/**
-	 * Ejecuta los metodos onDraw() de todos los {@link GameObject} y agrega las regiones que requiere
-	 * redibujo dentro de accDrawRect.
+	 * Vuelve a dejar como pendiente el ultimo estado de dibujo de un {@link GameObject} agregado, si es que 
+	 * ya se dibujo antes, por ejemplo en otra ventana.
 	 * <p>
-	 * Luego, retorna accDrawRect y lo resetea a null.
+	 * Metodo exclusivo para el hilo de simulacion.
+	 * 
+	 * @param object el objeto agregado
+	 */
+	public void addObject(GameObject object) {
+		ObjectDrawState state = object.getDrawState();
+		if(state == null) return;
+		
+		synchronized(pendingLock) {
+			this.putPendingState(state);
+			pendingRemovals.remove(object.getId());
+			state.addDrawRegionTo(dirtyRegion);
+		}
+	}
+	
+	/**
+	 * Marca el ultimo estado de dibujo del {@link GameObject} para ser removido, y agrega su region dentro de 
+	 * dirtyRegion.
 	 * <p>
-	 * @param objects La lista de {@link GameObject}
-	 * @return la region dentro de la ventana que requiere redibujo
+	 * Metodo exclusivo para el hilo de simulacion.
+	 * 
+	 * @param object el objeto removido
 	 */
-	public Rectangle executeOnDraw(Collection<GameObject> objects) {
-		Rectangle retRect;
-		
-		//Add all draw region into accDrawRect;
-		for(GameObject object:objects) {
-			this.addDrawRegion(object.executeOnDraw());
+	public void removeObject(GameObject object) {
+		synchronized(pendingLock) {
+			ObjectDrawState pendingState = pendingStates.remove(object.getId());
+			if(pendingState != null) pendingState.release();
+			pendingRemovals.add(object.getId());
+			
+			ObjectDrawState state = object.getDrawState();
+			if(state != null) state.addDrawRegionTo(dirtyRegion);
+		}
+	}
+	
+	/**
+	 * Aplica los estados de dibujo pendientes a los estados que se dibujan.
+	 * <p>
+	 * Luego, retorna dirtyRegion como una lista de rectangulos alineados a la grilla de dibujo, y la resetea.
+	 * <p>
+	 * Metodo exclusivo para el hilo de dibujo.
+	 * 
+	 * @return las regiones dentro de la ventana que requieren redibujo, o null si no hay ninguna
+	 */
+	public List<Rectangle> applyPendingDrawStates() {
+		//Swap the pending containers with the empty ones, so the simulation thread never waits for the whole 
+		//apply
+		synchronized(pendingLock) {
+			if(pendingStates.isEmpty() && pendingRemovals.isEmpty() && dirtyRegion.isEmpty()) return null;
+			
+			Map<Integer, ObjectDrawState> states = pendingStates;
+			pendingStates = applyingStates;
+			applyingStates = states;
+			
+			Set<Integer> removals = pendingRemovals;
+			pendingRemovals = applyingRemovals;
+			applyingRemovals = removals;
+			
+			DirtyRegion region = dirtyRegion;
+			dirtyRegion = applyingRegion;
+			applyingRegion = region;
 		}
 		
-		//Save and reset accDrawRect's value
-		retRect = accDrawRect;
-		accDrawRect = null;
+		synchronized(this) {
+			for(Integer id:applyingRemovals) {
+				renderStates.remove(id);
+			}
+			for(ObjectDrawState state:applyingStates.values()) {
+				renderStates.put(state);
+			}
+			applyingStates.clear();
+			applyingRemovals.clear();
 		
-		//DEBUG
-		if(DEBUG_DRAW_RECT) {
-			debugDrawRect = null;
-			debugGridRect = null;
+			//DEBUG
+			if(DEBUG_DRAW_RECT) {
+				debugRegions = null;
+				debugGridRect = null;
+			}
 		}
 		
 		//Return null if null;
-		if(retRect == null) 
+		if(applyingRegion.isEmpty()) 
 			return null;
 		
-		//Add padding to prevent weird artifacts
-		retRect.grow(PADDING, PADDING);
-		
-		//DEBUG
-		if(DEBUG_DRAW_RECT) debugDrawRect = (Rectangle) retRect.clone();
-		
-		//Fit the region into a grid to prevent weird artifacts
-		int topLeftX = (retRect.x / DRAW_GRID_SIZE) * DRAW_GRID_SIZE;
-		int topLeftY = (retRect.y / DRAW_GRID_SIZE) * DRAW_GRID_SIZE;
-		int bottomRightX = ((retRect.x+retRect.width) / DRAW_GRID_SIZE + 1) * DRAW_GRID_SIZE;
-		int bottomRightY = ((retRect.y+retRect.height) / DRAW_GRID_SIZE + 1) * DRAW_GRID_SIZE;
-		
-		retRect.setBounds(topLeftX, topLeftY, bottomRightX-topLeftX, bottomRightY-topLeftY);
+		//Merge the tiles into grid aligned regions
+		List<Rectangle> regions = applyingRegion.toRectangles();
+		applyingRegion.clear();
 		
 		//DEBUG
-		if(DEBUG_DRAW_RECT) debugGridRect = (Rectangle) retRect.clone();
+		if(DEBUG_DRAW_RECT) {
+			debugRegions = regions;
+			debugGridRect = null;
+			for(Rectangle rect:regions) {
+				if(debugGridRect == null) debugGridRect = (Rectangle) rect.clone();
+				else debugGridRect.add(rect);
+			}
+		}
 		
-		return retRect;
+		return regions;
 	}
 	
 	/**
-	 * Metodo que usa un objeto {@link Graphics2D} para dibujar los objetos.
+	 * Cambia el tamanho de la ventana que usa el indice de estados aplicados.
+	 * 
+	 * @param width el ancho de la ventana, en pixel
+	 * @param height el alto de la ventana, en pixel
+	 */
+	public synchronized void setWindowSize(int width, int height) {
+		renderStates.setSize(width, height);
+	}
+	
+	/**
+	 * Metodo que usa un objeto {@link Graphics2D} para dibujar los estados de dibujo aplicados.
 	 * 
 	 * @param g El obejto {@link Graphics2D}
-	 * @param objects la lista de objetos {@link GameObject}
 	 */
-	public void drawObjects(Graphics2D g, Collection<GameObject> objects) {
+	public synchronized void drawObjects(Graphics2D g) {
 		//Get the drawing region
 		Rectangle drawRect = g.getClipBounds();
 		
@@ -108,29 +214,33 @@ class DrawManager {
 		
 		if(drawRect == null) return;
 		
-		//Initialize the z-index:GameObject map
-		Map<Integer, List<GameObject>> zIndexMap = new TreeMap<Integer, List<GameObject>>();
+		//Get the affected states from the index, in order of their z-index
+		visibleStates.clear();
+		renderStates.query(drawRect, visibleStates);
 		
-		//Add affected object to the map
-		for(GameObject object:objects) {
-			if(object.intersectsDrawRectangle(drawRect)) {
-				int objectZIndex = object.getZIndex();
-				if(!zIndexMap.containsKey(objectZIndex))
-					zIndexMap.put(objectZIndex, new ArrayList<>());
-				zIndexMap.get(objectZIndex).add(object);
-			}
+		//Draw affected states
+		for(ObjectDrawState state:visibleStates) {
+			state.draw(g, drawRect);
 		}
+		visibleStates.clear();
 		
-		//Draw affected object in order of their z-index
-		for(List<GameObject> objectBatch:zIndexMap.values()) {
-			for(GameObject object:objectBatch) {
-				object.draw(g, drawRect);
+		//DEBUG
+		if(DEBUG_DRAW_RECT) {
+			for(Rectangle rect:debugRegions) {
+				g.drawRect(rect.x, rect.y, rect.width, rect.height);
 			}
 		}
-		
-		//DEBUG
-		if(DEBUG_DRAW_RECT) g.drawRect(debugDrawRect.x, debugDrawRect.y, debugDrawRect.width, debugDrawRect.height);
-		if(DEBUG_DRAW_RECT) g.drawRect(debugGridRect.x, debugGridRect.y, debugGridRect.width, debugGridRect.height);
 	}
 	
+	//PRIVATE METHODS
+	/**
+	 * Deja un estado como pendiente, reteniendolo, y suelta el estado pendiente anterior del mismo objeto.
+	 * 
+	 * @param state el estado a dejar pendiente
+	 */
+	private void putPendingState(ObjectDrawState state) {
+		state.retain();
+		ObjectDrawState previousState = pendingStates.put(state.getId(), state);
+		if(previousState != null) previousState.release();
+	}
 }
@@ -0,0 +1,436 @@
+package uni.robot.base;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indice espacial de los {@link ObjectDrawState} que se dibujan, usado por {@link DrawManager}.
+ * <p>
+ * La ventana se divide en una grilla uniforme de celdas de 64 x 64 pixeles, guardada en un arreglo del tamanho 
+ * de la ventana, y cada estado se guarda en todas las celdas que toca su region. Las regiones fuera de la ventana 
+ * se acercan a las celdas del borde, por lo que todo estado tiene al menos una celda. Las celdas vaciadas 
+ * conservan su arreglo, ya que los objetos suelen volver a ocuparlas.
+ * <p>
+ * El indice solo cambia cuando un objeto se redibuja o se remueve, y buscar los estados de una region solo 
+ * recorre las celdas que la region toca, por lo que el costo es proporcional a la cantidad de objetos dentro 
+ * de la region, y no a la cantidad de objetos de la ventana.
+ * <p>
+ * Los estados que tocan demasiadas celdas (ej. el fondo de un mundo muy grande) se guardan aparte, y se
+ * controlan en todas las busquedas.
+ * <p>
+ * Ademas, mantiene todos los estados ordenados segun z-index y luego id, en un arreglo persistente donde cada
+ * estado conoce su posicion (rank). Cuando un objeto se redibuja con otro z-index, solo ese estado se mueve
+ * hacia su nueva posicion, desplazando a sus vecinos; los objetos nuevos se agregan al final, y el arreglo se
+ * reordena completo solo si quedaron fuera de orden. Asi, ordenar los estados a dibujar es casi gratis cuando
+ * la mayoria de los objetos no cambian.
+ * <p>
+ * No es sincronizado, solo es usado dentro de los metodos sincronizados del lado de dibujo de
+ * {@link DrawManager}.
+ * 
+ * @author Fabio Kita
+ * 
+ */
+class DrawStateIndex {
+	//Cells of 64x64 pixels
+	private static final int CELL_SHIFT = 6;
+	
+	//Bigger states are kept in the oversized list instead of in every cell
+	private static final int MAX_CELLS_PER_STATE = 256;
+	private static final int INITIAL_CELL_CAPACITY = 4;
+	
+	//Queries that find more than 1/8 of the entries walk the order instead of sorting
+	private static final int FULL_WALK_SHIFT = 3;
+	
+	//Compacting below this amount of holes isn't worth it
+	private static final int MIN_COMPACT_HOLES = 16;
+	
+	private static final Comparator<Entry> DRAW_ORDER = 
+			Comparator.<Entry>comparingInt(entry -> entry.zIndex).thenComparingInt(entry -> entry.id);
+	private static final Comparator<Entry> RANK_ORDER = Comparator.comparingInt(entry -> entry.rank);
+	
+	private final Map<Integer, Entry> entries;
+	private final List<Entry> oversized;
+	
+	//Entries of each cell, indexed by cellY*cellColumnCount + cellX, null until the cell is used
+	private Entry[][] cells;
+	private int[] cellSizes;
+	private int cellColumnCount;
+	private int cellRowCount;
+	
+	//Every entry sorted in draw order, removed entries leave a hole (null)
+	private Entry[] order;
+	private int orderSize = 0;
+	private int holes = 0;
+	
+	//A new entry was appended out of order, so the whole order is sorted before the next query
+	private boolean orderDirty = false;
+	
+	//Increased on every query, used to return each entry once
+	private int queryMark = 0;
+	
+	//Reused by query()
+	private final List<Entry> found;
+	
+	/**
+	 * Crea un indice vacio para una ventana del tamanho pasado.
+	 * 
+	 * @param width el ancho de la ventana, en pixeles
+	 * @param height el alto de la ventana, en pixeles
+	 */
+	public DrawStateIndex(int width, int height) {
+		this.entries = new HashMap<>();
+		this.oversized = new ArrayList<>();
+		this.order = new Entry[16];
+		this.found = new ArrayList<>();
+		this.setSize(width, height);
+	}
+	
+	/**
+	 * Cambia el tamanho de la ventana, volviendo a guardar todos los estados en una grilla nueva.
+	 * 
+	 * @param width el ancho de la ventana, en pixeles
+	 * @param height el alto de la ventana, en pixeles
+	 */
+	public void setSize(int width, int height) {
+		int columnCount = Math.max(1, toCell(width - 1) + 1);
+		int rowCount = Math.max(1, toCell(height - 1) + 1);
+		if(cells != null && columnCount == cellColumnCount && rowCount == cellRowCount) return;
+		
+		this.cellColumnCount = columnCount;
+		this.cellRowCount = rowCount;
+		this.cells = new Entry[columnCount*rowCount][];
+		this.cellSizes = new int[columnCount*rowCount];
+		
+		oversized.clear();
+		for(Entry entry:entries.values()) {
+			setCells(entry);
+			addToCells(entry);
+		}
+	}
+	
+	/**
+	 * Agrega un estado de dibujo, reemplazando el estado anterior del mismo objeto.
+	 * <p>
+	 * El indice toma la retencion del estado que le pasan, y suelta los estados que reemplaza o remueve.
+	 * 
+	 * @param state el estado a agregar
+	 */
+	public void put(ObjectDrawState state) {
+		if(state.isEmpty()) {
+			remove(state.getId());
+			state.release();
+			return;
+		}
+		
+		Entry entry = entries.get(state.getId());
+		if(entry == null) {
+			entry = new Entry(state.getId());
+			entries.put(state.getId(), entry);
+			entry.setState(state);
+			setCells(entry);
+			addToCells(entry);
+			addToOrder(entry);
+			return;
+		}
+		
+		ObjectDrawState oldState = entry.state;
+		int oldZIndex = entry.zIndex;
+		removeFromCells(entry);
+		entry.setState(state);
+		setCells(entry);
+		addToCells(entry);
+		if(entry.zIndex != oldZIndex) moveInOrder(entry);
+		oldState.release();
+	}
+	
+	/**
+	 * Remueve el estado de dibujo de un objeto. No hace nada si no esta.
+	 * 
+	 * @param id el id del objeto
+	 */
+	public void remove(int id) {
+		Entry entry = entries.remove(id);
+		if(entry == null) return;
+		
+		removeFromCells(entry);
+		removeFromOrder(entry);
+		entry.state.release();
+	}
+	
+	/**
+	 * Agrega a la lista pasada todos los estados de dibujo cuya region intersecta con el rectangulo, una vez
+	 * cada uno, ordenados segun z-index y luego id.
+	 * 
+	 * @param rect el rectangulo a controlar
+	 * @param result la lista donde agregar los estados
+	 */
+	public void query(Rectangle rect, List<ObjectDrawState> result) {
+		if(orderDirty) sortOrder();
+		
+		int mark = ++queryMark;
+		found.clear();
+		
+		for(Entry entry:oversized) {
+			if(entry.intersects(rect)) addFound(entry, mark);
+		}
+		
+		int minCellX = toCellX(rect.x);
+		int minCellY = toCellY(rect.y);
+		int maxCellX = toCellX(rect.x + rect.width - 1);
+		int maxCellY = toCellY(rect.y + rect.height - 1);
+		
+		for(int cellY = minCellY; cellY <= maxCellY; cellY++) {
+			for(int cellX = minCellX; cellX <= maxCellX; cellX++) {
+				int cellIndex = cellY*cellColumnCount + cellX;
+				Entry[] cell = cells[cellIndex];
+				int cellSize = cellSizes[cellIndex];
+				
+				for(int i = 0; i < cellSize; i++) {
+					Entry entry = cell[i];
+					if(entry.mark == mark) continue;
+					entry.mark = mark;
+					if(entry.intersects(rect)) addFound(entry, mark);
+				}
+			}
+		}
+		
+		//Sort by rank, or walk the whole order if a big part of the entries were found
+		if(found.size() > (orderSize >> FULL_WALK_SHIFT)) {
+			for(int i = 0; i < orderSize; i++) {
+				if(order[i] != null && order[i].foundMark == mark) result.add(order[i].state);
+			}
+		}else {
+			found.sort(RANK_ORDER);
+			for(int i = 0; i < found.size(); i++) {
+				result.add(found.get(i).state);
+			}
+		}
+		found.clear();
+	}
+	
+	private void addFound(Entry entry, int mark) {
+		entry.foundMark = mark;
+		found.add(entry);
+	}
+	
+	//CELL METHODS
+	private void setCells(Entry entry) {
+		entry.minCellX = toCellX(entry.x);
+		entry.minCellY = toCellY(entry.y);
+		entry.maxCellX = toCellX(entry.x + entry.width - 1);
+		entry.maxCellY = toCellY(entry.y + entry.height - 1);
+	}
+	
+	private void addToCells(Entry entry) {
+		if(entry.isOversized()) {
+			oversized.add(entry);
+			return;
+		}
+		
+		for(int cellY = entry.minCellY; cellY <= entry.maxCellY; cellY++) {
+			for(int cellX = entry.minCellX; cellX <= entry.maxCellX; cellX++) {
+				int cellIndex = cellY*cellColumnCount + cellX;
+				Entry[] cell = cells[cellIndex];
+				int cellSize = cellSizes[cellIndex];
+				if(cell == null) {
+					cell = new Entry[INITIAL_CELL_CAPACITY];
+					cells[cellIndex] = cell;
+				}else if(cellSize == cell.length) {
+					cell = Arrays.copyOf(cell, cellSize*2);
+					cells[cellIndex] = cell;
+				}
+				cell[cellSize] = entry;
+				cellSizes[cellIndex] = cellSize + 1;
+			}
+		}
+	}
+	
+	private void removeFromCells(Entry entry) {
+		if(entry.isOversized()) {
+			oversized.remove(entry);
+			return;
+		}
+		
+		for(int cellY = entry.minCellY; cellY <= entry.maxCellY; cellY++) {
+			for(int cellX = entry.minCellX; cellX <= entry.maxCellX; cellX++) {
+				//The order inside a cell doesn't matter, so the last entry fills the gap
+				int cellIndex = cellY*cellColumnCount + cellX;
+				Entry[] cell = cells[cellIndex];
+				int last = cellSizes[cellIndex] - 1;
+				for(int i = 0; i <= last; i++) {
+					if(cell[i] != entry) continue;
+					cell[i] = cell[last];
+					cell[last] = null;
+					cellSizes[cellIndex] = last;
+					break;
+				}
+			}
+		}
+	}
+	
+	//ORDER METHODS
+	/**
+	 * Agrega una entrada al final del orden. Si queda fuera de orden, marca el orden para ser reordenado 
+	 * completo, ya que los objetos nuevos suelen llegar muchos a la vez (ej. al crear un mundo).
+	 * 
+	 * @param entry la entrada nueva
+	 */
+	private void addToOrder(Entry entry) {
+		if(orderSize == order.length) order = Arrays.copyOf(order, order.length*2);
+		
+		Entry last = lastInOrder();
+		if(last != null && DRAW_ORDER.compare(last, entry) > 0) orderDirty = true;
+		
+		entry.rank = orderSize;
+		order[orderSize++] = entry;
+	}
+	
+	/**
+	 * Mueve una entrada cuyo z-index cambio hacia su nueva posicion, desplazando a las entradas que quedan 
+	 * en el medio, como en un ordenamiento por insercion.
+	 * 
+	 * @param entry la entrada a mover
+	 */
+	private void moveInOrder(Entry entry) {
+		//The whole order will be sorted anyway
+		if(orderDirty) return;
+		
+		int i = entry.rank;
+		
+		//Move towards the start
+		while(i > 0 && (order[i-1] == null || DRAW_ORDER.compare(order[i-1], entry) > 0)) {
+			shiftInOrder(i-1, i);
+			i--;
+		}
+		
+		//Move towards the end
+		while(i < orderSize-1 && (order[i+1] == null || DRAW_ORDER.compare(order[i+1], entry) < 0)) {
+			shiftInOrder(i+1, i);
+			i++;
+		}
+		
+		order[i] = entry;
+		entry.rank = i;
+	}
+	
+	private void shiftInOrder(int from, int to) {
+		order[to] = order[from];
+		if(order[to] != null) order[to].rank = to;
+	}
+	
+	private void removeFromOrder(Entry entry) {
+		order[entry.rank] = null;
+		holes++;
+		
+		if(holes >= MIN_COMPACT_HOLES && holes > orderSize/2) compactOrder();
+	}
+	
+	private Entry lastInOrder() {
+		for(int i = orderSize-1; i >= 0; i--) {
+			if(order[i] != null) return order[i];
+		}
+		return null;
+	}
+	
+	/**
+	 * Remueve los huecos del orden, sin cambiar el orden de las entradas.
+	 */
+	private void compactOrder() {
+		int j = 0;
+		for(int i = 0; i < orderSize; i++) {
+			if(order[i] == null) continue;
+			order[j] = order[i];
+			order[j].rank = j;
+			j++;
+		}
+		Arrays.fill(order, j, orderSize, null);
+		orderSize = j;
+		holes = 0;
+	}
+	
+	/**
+	 * Reordena todas las entradas. Casi siempre solo algunas entradas nuevas estan fuera de orden, lo cual el 
+	 * ordenamiento de Arrays.sort() resuelve en tiempo casi lineal.
+	 */
+	private void sortOrder() {
+		compactOrder();
+		Arrays.sort(order, 0, orderSize, DRAW_ORDER);
+		for(int i = 0; i < orderSize; i++) {
+			order[i].rank = i;
+		}
+		orderDirty = false;
+	}
+	
+	//PRIVATE METHODS
+	private static int toCell(int coordinate) {
+		return coordinate >> CELL_SHIFT;
+	}
+	
+	//Cells outside of the window are clamped to the border cells
+	private int toCellX(int x) {
+		return Math.max(0, Math.min(cellColumnCount - 1, toCell(x)));
+	}
+	
+	private int toCellY(int y) {
+		return Math.max(0, Math.min(cellRowCount - 1, toCell(y)));
+	}
+	
+	//PRIVATE CLASSES
+	/**
+	 * El estado de dibujo actual de un objeto, junto con su region, las celdas que toca y su posicion en el 
+	 * orden de dibujo. Se reutiliza cada vez que el objeto se redibuja.
+	 * 
+	 * @author Fabio Kita
+	 */
+	private static class Entry{
+		private final int id;
+		
+		private ObjectDrawState state;
+		private int zIndex;
+		private int x;
+		private int y;
+		private int width;
+		private int height;
+		
+		//Cells touched, clamped to the window
+		private int minCellX;
+		private int minCellY;
+		private int maxCellX;
+		private int maxCellY;
+		
+		//Position inside the order
+		private int rank;
+		
+		//Last query that visited and found this entry
+		private int mark = 0;
+		private int foundMark = 0;
+		
+		public Entry(int id) {
+			this.id = id;
+		}
+		
+		public void setState(ObjectDrawState state) {
+			this.state = state;
+			this.zIndex = state.getZIndex();
+			this.x = state.getX();
+			this.y = state.getY();
+			this.width = state.getWidth();
+			this.height = state.getHeight();
+		}
+		
+		public boolean isOversized() {
+			return (long) (maxCellX - minCellX + 1) * (maxCellY - minCellY + 1) > MAX_CELLS_PER_STATE;
+		}
+		
+		public boolean intersects(Rectangle rect) {
+			return width > 0 && height > 0 && rect.width > 0 && rect.height > 0
+					&& x < rect.x + rect.width && rect.x < x + width
+					&& y < rect.y + rect.height && rect.y < y + height;
+		}
+	}
+}
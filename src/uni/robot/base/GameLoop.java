@@ -1,30 +1,70 @@
 package uni.robot.base;
 
+import java.awt.GraphicsEnvironment;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * Objeto que controla el ciclo de juego, es decir, es responsable de actualizar estados (ciclo Update) y 
  * repintar las ventanas (ciclo Draw) periodicamente.
+ * <p>
+ * Cada ciclo corre en su propio hilo. El hilo de dibujo pide un cuadro nuevo en cada ciclo Draw, y el hilo 
+ * de simulacion, al terminar su siguiente ciclo Update, captura los estados de dibujo inmutables de las 
+ * ventanas (ver {@link ObjectDrawState}). Asi, un ciclo Draw lento nunca atrasa al ciclo Update.
+ * <p>
+ * Si el entorno es headless (java.awt.headless), el ciclo Draw nunca se ejecuta.
  * 
  * @author Fabio Kita
  *
  */
 public abstract class GameLoop implements Runnable{
 	private final static int THREAD_PRIORITY = 4; //This thread priority
+	private final static int DRAW_THREAD_PRIORITY = 4; //The draw thread priority
+	
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+	
+	//Maximum amount of late Update cycles executed in a row before dropping the rest
+	private static final int MAX_CATCH_UP_UPDATES = 5;
 	
-	private static final double FPS_TO_INTERVAL = 1000.0;
+	//Waits longer than this park the thread, shorter waits yield and then spin
+	private static final long PARK_MARGIN_NANOS = 250_000;
+	private static final long SPIN_MARGIN_NANOS = 20_000;
+	
+	//Unthrottled, after this many Update cycles in a row without work the loop parks between cycles
+	private static final int IDLE_SPIN_UPDATES = 64;
+	private static final long IDLE_PARK_NANOS = 500_000;
 	
 	private int updatePerSecond = 60;
 	private int drawPerSecond = 60;
 	
-	private double updateInterval = FPS_TO_INTERVAL/updatePerSecond;
-	private double drawInterval = FPS_TO_INTERVAL/drawPerSecond;
+	//Read by both threads
+	private volatile long updateInterval = NANOS_PER_SECOND/updatePerSecond;
+	private volatile long drawInterval = NANOS_PER_SECOND/drawPerSecond;
+	
+	private final boolean headless = GraphicsEnvironment.isHeadless();
+	
+	private volatile boolean parallelUpdate = false;
+	
+	//Set by markUpdateActive() during an unthrottled Update cycle, written by the window threads
+	private volatile boolean updateActive = false;
+	
+	//Set by the draw thread, the simulation thread captures the draw states when it's set
+	private final AtomicBoolean frameRequested = new AtomicBoolean(false);
 	
 	/**
-	 * Comienza el ciclo de juego en un hilo nuevo.
+	 * Comienza el ciclo de juego en un hilo nuevo, y el ciclo Draw en otro hilo si el entorno no es headless.
 	 */
 	public void startGameLoop() {
 		Thread t = new Thread(this);
 		t.setPriority(THREAD_PRIORITY);
 		t.start();
+		
+		if(!headless) {
+			Thread drawThread = new Thread(this::handleDrawLoop, "GameLoop-Draw");
+			drawThread.setPriority(DRAW_THREAD_PRIORITY);
+			drawThread.setDaemon(true);
+			drawThread.start();
+		}
 	}
 	
 	@Override
@@ -71,7 +111,29 @@ public abstract class GameLoop implements Runnable{
 	 */
 	public abstract void onUpdate();
 	
+	//PROTECTED METHODS
+	/**
+	 * Retorna si el ciclo Update respeta la cantidad de ciclos por segundo. Si retorna false, el ciclo Update 
+	 * se ejecuta continuamente, sin pausas, y solo el ciclo Draw respeta su cantidad por segundo.
+	 * <p>
+	 * Sin pausas, los ciclos Update que hacen trabajo deben llamar a markUpdateActive(); si muchos ciclos 
+	 * seguidos no lo llaman, el hilo se pausa brevemente entre ciclos, para no ocupar un nucleo sin hacer nada.
+	 * 
+	 * @return si el ciclo Update respeta la cantidad de ciclos por segundo
+	 */
+	protected boolean isThrottled() {
+		return true;
+	}
+	
 	//PUBLIC METHODS
+	/**
+	 * Marca que el ciclo Update actual hizo trabajo (ej. proceso una instruccion), por lo que el ciclo Update 
+	 * sin pausas sigue ejecutandose sin pausas. Puede ser llamado desde cualquier hilo de actualizacion.
+	 */
+	public void markUpdateActive() {
+		updateActive = true;
+	}
+	
 	/**
 	 * Retorna la cantidad de ciclo Update que realiza por segundo.
 	 * 
@@ -88,9 +150,31 @@ public abstract class GameLoop implements Runnable{
 	 */
 	public void setUpdatePerSecond(int updatePerSecond) {
 		this.updatePerSecond = updatePerSecond;
-		this.updateInterval = FPS_TO_INTERVAL / this.updatePerSecond;
+		this.updateInterval = NANOS_PER_SECOND / this.updatePerSecond;
 	}
 
+	/**
+	 * Retorna si el ciclo Update actualiza las ventanas en paralelo.
+	 * 
+	 * @return si las ventanas se actualizan en paralelo
+	 */
+	public boolean isParallelUpdate() {
+		return parallelUpdate;
+	}
+	
+	/**
+	 * Setea si el ciclo Update actualiza las ventanas en paralelo, cada una en un nucleo distinto si es 
+	 * posible.
+	 * <p>
+	 * Solo es seguro si las ventanas no comparten estado mutable entre si. El metodo onUpdate() del ciclo de 
+	 * juego siempre se ejecuta antes, en el hilo de simulacion.
+	 * 
+	 * @param parallelUpdate si las ventanas se actualizan en paralelo
+	 */
+	public void setParallelUpdate(boolean parallelUpdate) {
+		this.parallelUpdate = parallelUpdate;
+	}
+	
 	/**
 	 * Retorna la cantidad de ciclo Draw que realiza por segundo.
 	 * 
@@ -107,34 +191,79 @@ public abstract class GameLoop implements Runnable{
 	 */
 	public void setDrawPerSecond(int drawPerSecond) {
 		this.drawPerSecond = drawPerSecond;
-		this.drawInterval = FPS_TO_INTERVAL / this.drawPerSecond;
+		this.drawInterval = NANOS_PER_SECOND / this.drawPerSecond;
 	}
 	
 	/**
-	 * Metodo usado por el hilo creado en startGameLoop para correr el ciclo de juego.
+	 * Metodo usado por el hilo creado en startGameLoop para correr el ciclo Update.
+	 * <p>
+	 * Usa un paso de tiempo fijo medido con System.nanoTime(). Si el ciclo Update se atrasa, ejecuta hasta 
+	 * MAX_CATCH_UP_UPDATES ciclos atrasados seguidos; si aun asi sigue atrasado, descarta el atraso y 
+	 * reprograma desde el momento actual, para que el atraso no se acumule.
+	 * <p>
+	 * Luego de actualizar, si el hilo de dibujo pidio un cuadro nuevo, captura los estados de dibujo.
 	 */
 	public void handleLoop() {
-		double nextUpdate = System.currentTimeMillis() + updateInterval;
-		double nextDraw = System.currentTimeMillis() + drawInterval;
+		long current = System.nanoTime();
+		long nextUpdate = current + updateInterval;
+		int idleUpdates = 0;
 		
 		for(;;) {
-			double current = System.currentTimeMillis();
+			current = System.nanoTime();
 			
-			if(Math.round(nextUpdate - current) <= 0) {
+			if(!isThrottled()) {
+				//Unthrottled, update as fast as possible and only keep the draw schedule
+				updateActive = false;
 				this.update();
-				while(Math.round(nextUpdate - current) <= 0) {
+				current = System.nanoTime();
+				nextUpdate = current + updateInterval;
+				
+				if(updateActive) idleUpdates = 0;
+				else idleUpdates++;
+			}else if(current - nextUpdate >= 0) {
+				int updates = 0;
+				do {
+					this.update();
 					nextUpdate += updateInterval;
-				}
+					updates++;
+					current = System.nanoTime();
+				}while(current - nextUpdate >= 0 && updates < MAX_CATCH_UP_UPDATES);
+				
+				//Drift correction
+				if(current - nextUpdate >= 0) nextUpdate = current + updateInterval;
+			}
+			
+			if(frameRequested.get() && frameRequested.getAndSet(false)) {
+				this.windowManager.captureWindows();
 			}
 			
-			if(Math.round(nextDraw - current) <= 0) {
-				this.draw();
-				while(Math.round(nextDraw - current) <= 0) {
-					nextDraw +=  drawInterval;
-				}
+			if(isThrottled()) {
+				waitUntil(nextUpdate);
+			}else if(idleUpdates > IDLE_SPIN_UPDATES) {
+				//Nothing to do, back off instead of spinning
+				LockSupport.parkNanos(IDLE_PARK_NANOS);
 			}
+		}
+	}
+	
+	/**
+	 * Metodo usado por el hilo de dibujo creado en startGameLoop para correr el ciclo Draw.
+	 * <p>
+	 * Cada ciclo pide un cuadro nuevo al hilo de simulacion y dibuja el ultimo cuadro capturado. Los ciclos 
+	 * Draw atrasados nunca se recuperan, solo importa el ultimo estado.
+	 */
+	public void handleDrawLoop() {
+		long nextDraw = System.nanoTime();
+		
+		for(;;) {
+			frameRequested.set(true);
+			this.draw();
+			nextDraw += drawInterval;
+				
+			long current = System.nanoTime();
+			if(current - nextDraw >= 0) nextDraw = current + drawInterval;
 			
-			sleepMillis(Math.min(nextUpdate, nextDraw) - current);
+			waitUntil(nextDraw);
 		}
 	}
 	
@@ -143,12 +272,13 @@ public abstract class GameLoop implements Runnable{
 	 */
 	public void update() {
 		onUpdate();
-		this.windowManager.updateWindows();
+		if(parallelUpdate) this.windowManager.updateWindowsInParallel();
+		else this.windowManager.updateWindows();
 		Thread.yield();
 	}
 
 	/**
-	 * Metodo usado dentro de handleLoop para ejecutar un ciclo Draw.
+	 * Metodo usado dentro de handleDrawLoop para ejecutar un ciclo Draw.
 	 */
 	public void draw() {
 		this.windowManager.drawWindows();
@@ -157,13 +287,19 @@ public abstract class GameLoop implements Runnable{
 	
 	//PRIVATE METHODS
 	/**
-	 * Pausa el hilo durante el tiempo especificado.
+	 * Espera hasta el momento especificado. Primero pausa el hilo con LockSupport.parkNanos(), que tiene poca 
+	 * precision, y los ultimos instantes cede el procesador o gira, para no pasarse del momento.
 	 * 
-	 * @param millis el tiempo a pausar, en milisegundos
+	 * @param deadline el momento, segun System.nanoTime()
 	 */
-	private void sleepMillis(double millis) {
-		try {
-			Thread.sleep(Math.round(millis));
-		}catch(InterruptedException e) {};
+	private void waitUntil(long deadline) {
+		for(;;) {
+			long remaining = deadline - System.nanoTime();
+			if(remaining <= 0) return;
+			
+			if(remaining > PARK_MARGIN_NANOS) LockSupport.parkNanos(remaining - PARK_MARGIN_NANOS);
+			else if(remaining > SPIN_MARGIN_NANOS) Thread.yield();
+			else Thread.onSpinWait();
+		}
 	}
 }
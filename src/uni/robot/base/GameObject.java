@@ -1,8 +1,8 @@
 package uni.robot.base;
 
-import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Objeto logico que existe dentro de un {@link GameWindow}.
@@ -13,10 +13,11 @@ import java.awt.image.BufferedImage;
  *
  */
 public abstract class GameObject {
-	private static int nextId = 0;
+	//Objects can be created by windows updating in parallel
+	private static final AtomicInteger nextId = new AtomicInteger();
 	
 	//El id del objeto, usado dentro de ObjectManager
-	private final int id = nextId++;
+	private final int id = nextId.getAndIncrement();
 	
 	//El objeto ObjectDrawManager, responsable de los metodos de dibujos.
 	private final ObjectDrawManager objectDrawManager = new ObjectDrawManager(this);
@@ -27,6 +28,9 @@ public abstract class GameObject {
 	//Si el metodo onCreate fue ejecutado.
 	private boolean created = false;
 	
+	//Si el objeto no ejecuta onUpdate()
+	private volatile boolean sleeping = false;
+	
 	//ABSTRACT METHODS
 	/**
 	 * Ejecutado una vez cuando es agregado dentro de una ventana. No se ejecuta de nuevo si es reagregado a otra
@@ -107,6 +111,31 @@ public abstract class GameObject {
 		objectDrawManager.setZIndex(zIndex);
 	}
 	
+	/**
+	 * Retorna si este objeto esta dormido.
+	 * 
+	 * @return si este objeto esta dormido
+	 */
+	public boolean isSleeping() {
+		return sleeping;
+	}
+	
+	/**
+	 * Setea si este objeto esta dormido. Un objeto dormido no ejecuta el metodo onUpdate(), por lo que no 
+	 * agrega costo al ciclo Update, pero sigue dibujandose normalmente.
+	 * <p>
+	 * Se recomienda para objetos estaticos, cuyo metodo onUpdate() no hace nada. Se puede llamar dentro del 
+	 * metodo onCreate().
+	 * 
+	 * @param sleeping si este objeto esta dormido
+	 */
+	public void setSleeping(boolean sleeping) {
+		if(this.sleeping == sleeping) return;
+		
+		this.sleeping = sleeping;
+		if(this.window != null) this.window.updateObjectSleeping(this);
+	}
+	
 	/**
 	 * Destruye este objeto de la ventana, ejecutando el metodo onDestroy de este objeto.
 	 */
@@ -158,6 +187,20 @@ public abstract class GameObject {
 		this.drawImage(image, x, y, 1.0, 1.0);
 	}
 	
+	/**
+	 * Dibuja un {@link LazyImage}, sin escalar. Cada bloque de la imagen se crea recien cuando alguna region 
+	 * repintada lo alcanza.
+	 * <p>
+	 * Usar exclusivamente dentro del metodo onDraw().
+	 * 
+	 * @param image La imagen {@link LazyImage} a dibujar.
+	 * @param x La posicion x, en relacion a la esquina superior-izquierda de la ventana, en pixel. 
+	 * @param y La posicion y, en relacion a la esquina superior-izquierda de la ventana, en pixel.
+	 */
+	public void drawLazyImage(LazyImage image, int x, int y) {
+		this.objectDrawManager.drawLazyImage(image, x, y);
+	}
+	
 	/**
 	 * Dibuja el objeto {@link Sprite}, en el frame especificado.
 	 * <p>
@@ -173,8 +216,40 @@ public abstract class GameObject {
 	 * @see Sprite
 	 */
 	public void drawSprite(Sprite sprite, int frameIndex, int x, int y, double scaleX, double scaleY) {
-		int xOffset = (int) Math.round(sprite.getOriginX()*scaleX);
-		int yOffset = (int) Math.round(sprite.getOriginY()*scaleY);
+		this.drawSprite(sprite, frameIndex, x, y, sprite.getOriginX(), sprite.getOriginY(), scaleX, scaleY);
+	}
+	
+	/**
+	 * Dibuja el objeto {@link Sprite}, en el frame especificado, usando el origen pasado en lugar del origen 
+	 * del sprite. Pensado para sprites compartidos (ver ResourceManager.loadSprite()).
+	 * <p>
+	 * Usar exclusivamente dentro del metodo onDraw().
+	 * 
+	 * @param sprite El objeto {@link Sprite} a dibujar
+	 * @param frameIndex El indice de imagen a dibujar.
+	 * @param x La posicion x, en relacion a la esquina superior-izquierda de la ventana, en pixel. 
+	 * @param y La posicion y, en relacion a la esquina superior-izquierda de la ventana, en pixel. 
+	 * @param originX La posicion x del punto origen del sprite, en pixeles sin escalar.
+	 * @param originY La posicion y del punto origen del sprite, en pixeles sin escalar.
+	 * @param scaleX El escalado x de la imagen a dibujar. 
+	 * @param scaleY El escalado y de la imagen a dibujar. 
+	 * 
+	 * @see Sprite
+	 */
+	public void drawSprite(Sprite sprite, int frameIndex, int x, int y, int originX, int originY, 
+			double scaleX, double scaleY) {
+		//Integer scales use the pre-scaled frames, so painting them is a 1:1 copy
+		int scale = (int) scaleX;
+		if(scaleX == scale && scaleY == scale) {
+			BufferedImage frame = sprite.getScaledFrame(frameIndex, scale);
+			if(frame != null) {
+				this.drawImage(frame, x - originX*scale, y - originY*scale);
+				return;
+			}
+		}
+		
+		int xOffset = (int) Math.round(originX*scaleX);
+		int yOffset = (int) Math.round(originY*scaleY);
 		this.drawImage(sprite.getFrame(frameIndex), x - xOffset, y - yOffset, scaleX, scaleY);
 	}
 	
@@ -245,10 +320,11 @@ public abstract class GameObject {
 	 * <p>
 	 * No es recomendado utilizar fuera de su uso original.
 	 * 
-	 * @return {@link Rectangle} que representa la region dibujada por este objeto.
+	 * @param rect {@link Rectangle} donde se copia la region dibujada por este objeto, para poder reutilizarlo.
+	 * @return si el objeto dibujo algo, si no, el rectangulo no cambia.
 	 */
-	protected Rectangle getDrawRect() {
-		return this.objectDrawManager.getDrawCallsRectangle();
+	protected boolean getDrawRect(Rectangle rect) {
+		return this.objectDrawManager.getDrawCallsRectangle(rect);
 	}
 	
 	/**
@@ -266,64 +342,33 @@ public abstract class GameObject {
 	/**
 	 * Metodo usado por {@link DrawManager} para ejecutar el metodo onDraw().
 	 * <p>
-	 * El metodo retorna un {@link Rectangle} que representa una region a repintar, es decir, la combinacion de 
-	 * la region afectada por por llamada onDraw() actual con la region afectada por la llamada onDraw() 
-	 * anterior.
+	 * Agrega dentro de dirtyRegion las regiones a repintar, es decir, la region afectada por la llamada 
+	 * onDraw() actual y la region afectada por la llamada onDraw() anterior.
 	 * <p>
-	 * Este metodo retorna null si no requiere repintar. Esto puede ocurrir cuando este objeto no ejecuto el 
-	 * metodo redraw(), o si el metodo onDraw() no dibujo nada.
+	 * No hace nada si este objeto no ejecuto el metodo redraw().
 	 * <p>
 	 * No es recomendado utilizar fuera de su uso original.
 	 * 
-	 * @return el {@link Rectangle} que representa la region que requiere repintar. O null si no requiere 
-	 * repintar.
+	 * @param dirtyRegion la region a repintar total
+	 * @return si el metodo onDraw() fue ejecutado
 	 */
-	protected Rectangle executeOnDraw() {
-		if(!this.objectDrawManager.getToRedraw()) return null;
+	boolean executeOnDraw(DirtyRegion dirtyRegion) {
+		if(!this.objectDrawManager.getToRedraw()) return false;
 		this.objectDrawManager.setToRedraw(false);
 		
-		Rectangle previousDrawCallRect = this.objectDrawManager.getDrawCallsRectangle();
-		this.objectDrawManager.updateDrawCalls();
-		Rectangle currentDrawCallRect = this.objectDrawManager.getDrawCallsRectangle();
-		
-		if(previousDrawCallRect == null) {
-			return currentDrawCallRect;
-		}else if(currentDrawCallRect == null) {
-			return previousDrawCallRect;
-		}else {
-			return (Rectangle) previousDrawCallRect.createUnion(currentDrawCallRect);
-		}
-	}
-	
-	/**
-	 * Metodo usado por {@link DrawManager} para controlar si la region intersecta el lo dibujado por el metodo 
-	 * onDraw de este objeto. 
-	 * <p>
-	 * Este metodo solo funciona si el metodo executeOnDraw() fue ejecutado anteriormente. 
-	 * <p>
-	 * No es recomendado utilizar fuera de su uso original.
-	 * 
-	 * @param rect El {@link Rectangle} usado para el control.
-	 * 
-	 * @return Si este objeto intersecta con la region.
-	 */
-	protected boolean intersectsDrawRectangle(Rectangle rect) {
-		Rectangle drawCallRect = this.objectDrawManager.getDrawCallsRectangle();
-		if(drawCallRect == null) return false;
-		return drawCallRect.intersects(rect);
+		this.objectDrawManager.updateDrawCalls(dirtyRegion);
+		return true;
 	}
 	
 	/**
-	 * Metodo usado por {@link DrawManager} para dibujar usando {@link Graphics2D}.
-	 * <p>
-	 * Si el parametro drawRect no es null, este solo repintara las cosas que intersecta con el rectangulo.
+	 * Metodo usado por {@link DrawManager} para conseguir el ultimo estado de dibujo de este objeto, que 
+	 * luego es dibujado por el hilo de dibujo.
 	 * <p>
 	 * No es recomendado utilizar fuera de su uso original.
 	 * 
-	 * @param g El objeto {@link Graphics2D}.
-	 * @param drawRect La region a repintar, o null si se requiere repintar todo el objeto;
+	 * @return el {@link ObjectDrawState} creado por el ultimo executeOnDraw(), o null si nunca se dibujo.
 	 */
-	protected void draw(Graphics2D g, Rectangle drawRect) {
-		this.objectDrawManager.draw(g, drawRect);
+	ObjectDrawState getDrawState() {
+		return this.objectDrawManager.getDrawState();
 	}
 }
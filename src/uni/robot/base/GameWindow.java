@@ -4,46 +4,72 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
 import java.awt.Rectangle;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 /**
  * Objeto que representa una ventana, en donde un o mas {@link GameObject} puede existir.
  * <p>
  * Este objeto debe de ser agregado dentro de un {@link GameLoop} para que funcione.
+ * <p>
+ * Si el entorno es headless (java.awt.headless), la ventana no crea ningun {@link JFrame} ni {@link JPanel}, y 
+ * nunca se dibuja; solo se mantiene la logica de sus objetos.
  * 
  * @author Fabio Kita
  *
  */
 public abstract class GameWindow{
+	private final boolean headless;
 	private final GameFrame frame;
 	private final GamePanel panel;
 	
+	//Used instead of the frame and panel when headless
+	private String title;
+	private int width;
+	private int height;
+	
 	private final ObjectManager objectManager;
 	private final InputManager inputManager;
 	private final DrawManager drawManager;
 	
 	private GameLoop gameLoop;
-	private boolean created = false;
+	
+	//Read by the Swing thread while painting
+	private volatile boolean created = false;
+	
+	//Regions waiting to be painted by the Swing thread, guarded by paintLock
+	private final Object paintLock = new Object();
+	private List<Rectangle> paintRegions = new ArrayList<>();
+	private boolean paintScheduled = false;
 	
 	public GameWindow() {
 		this("", 640, 640);
 	}
 	
 	public GameWindow(String title, int width, int height) {
-		this.frame = new GameFrame();
-		this.panel = new GamePanel(this);
-		this.frame.getContentPane().add(this.panel);
+		this.headless = GraphicsEnvironment.isHeadless();
+		if(headless) {
+			this.frame = null;
+			this.panel = null;
+		}else {
+			this.frame = new GameFrame();
+			this.panel = new GamePanel(this);
+			this.frame.getContentPane().add(this.panel);
+		}
 		
 		this.setTitle(title);
 		this.setDimension(width, height);
 		
 		this.objectManager = new ObjectManager();
 		this.inputManager = new InputManager(panel);
-		this.drawManager = new DrawManager();
+		this.drawManager = new DrawManager(width, height);
 	}
 	
 	//CALLBACKS
@@ -69,6 +95,7 @@ public abstract class GameWindow{
 		this.objectManager.addObject(object);
 		object.addToWindow(this);
 		if(this.gameLoop != null) object.createIfNotCreated();
+		if(!headless) this.drawManager.addObject(object);
 	}
 	
 	/**
@@ -79,7 +106,7 @@ public abstract class GameWindow{
 	public void removeObject(GameObject object) {
 		this.objectManager.removeObject(object);
 		object.removeFromWindow();
-		this.drawManager.addDrawRegion(object.getDrawRect());
+		if(!headless) this.drawManager.removeObject(object);
 	}
 	
 	/**
@@ -111,10 +138,19 @@ public abstract class GameWindow{
 		return gameLoop;
 	}
 	
+	/**
+	 * Retorna si esta ventana es headless, es decir, si no tiene {@link JFrame} ni {@link JPanel}.
+	 * 
+	 * @return si esta ventana es headless
+	 */
+	public boolean isHeadless() {
+		return headless;
+	}
+	
 	/**
 	 * Retorna el objeto {@link JFrame} de esta ventana.
 	 * 
-	 * @return El objeto {@link JFrame}
+	 * @return El objeto {@link JFrame}, o null si la ventana es headless
 	 */
 	public JFrame getFrame() {
 		return this.frame;
@@ -123,7 +159,7 @@ public abstract class GameWindow{
 	/**
 	 * Retorna el objeto {@link JPanel} de esta ventana.
 	 * 
-	 * @return El objeto {@link JPanel}
+	 * @return El objeto {@link JPanel}, o null si la ventana es headless
 	 */
 	public JPanel getPanel() {
 		return this.panel;
@@ -135,7 +171,7 @@ public abstract class GameWindow{
 	 * @return El titulo de esta ventana.
 	 */
 	public String getTitle() {
-		return this.frame.getTitle();
+		return this.title;
 	}
 	
 	/**
@@ -144,7 +180,8 @@ public abstract class GameWindow{
 	 * @param title El nuevo titulo.
 	 */
 	public void setTitle(String title) {
-		this.frame.setTitle(title);
+		this.title = title;
+		if(!headless) this.frame.setTitle(title);
 	}
 	
 	/**
@@ -153,6 +190,7 @@ public abstract class GameWindow{
 	 * @return El ancho de esta ventana, en pixel.
 	 */
 	public int getWidth() {
+		if(headless) return this.width;
 		return this.panel.getWidth();
 	}
 	
@@ -162,6 +200,7 @@ public abstract class GameWindow{
 	 * @return El alto de esta ventana, en pixel.
 	 */
 	public int getHeight() {
+		if(headless) return this.height;
 		return this.panel.getHeight();
 	}
 	
@@ -172,6 +211,11 @@ public abstract class GameWindow{
 	 * @param height El alto, en pixel.
 	 */
 	public void setDimension(int width, int height) {
+		this.width = width;
+		this.height = height;
+		if(drawManager != null) drawManager.setWindowSize(width, height);
+		if(headless) return;
+		
 		this.panel.setPreferredSize(new Dimension(width, height));
 		this.frame.pack();
 		this.frame.setLocationRelativeTo(null);
@@ -179,14 +223,23 @@ public abstract class GameWindow{
 	
 	//DEFAULT METHODS
 	/**
-	 * Metodo usado para ejecutar los metodos onDraw todos los {@link GameObject}, por medio de 
+	 * Metodo usado por {@link GameObject} cuando cambia si esta dormido o no.
+	 * 
+	 * @param object el objeto que cambio
+	 */
+	void updateObjectSleeping(GameObject object) {
+		this.objectManager.updateSleeping(object);
+	}
+	
+	/**
+	 * Metodo usado para dibujar los ultimos estados de dibujo de todos los {@link GameObject}, por medio de 
 	 * {@link DrawManager}.
 	 * 
 	 * @param g El objeto {@link Graphics2D} usado para dibujar.
 	 */
 	void drawObjects(Graphics2D g) {
 		if(!this.created) return;
-		this.drawManager.drawObjects(g, this.objectManager.getObjects());
+		this.drawManager.drawObjects(g);
 	}
 	
 	/**
@@ -202,7 +255,7 @@ public abstract class GameWindow{
 			for(GameObject object:getObjects())
 				object.createIfNotCreated();
 			
-			this.frame.setVisible(true);
+			if(!headless) this.frame.setVisible(true);
 			
 			this.created = true;
 		}
@@ -219,14 +272,56 @@ public abstract class GameWindow{
 	}
 	
 	/**
-	 * Ejecuta lod metodos onDraw() de todos los {@link GameObject}.
+	 * Ejecuta lod metodos onDraw() de todos los {@link GameObject}, dejando sus estados de dibujo pendientes 
+	 * para el hilo de dibujo.
+	 * <p>
+	 * Metodo exclusivo para el hilo de simulacion.
+	 */
+	void captureDraw() {
+		if(headless) return;
+		
+		this.drawManager.captureDrawStates(objectManager.getObjects());
+	}
+	
+	/**
+	 * Aplica los estados de dibujo pendientes y repinta las regiones afectadas.
+	 * <p>
+	 * Metodo exclusivo para el hilo de dibujo.
 	 */
 	void draw() {
-		Rectangle drawRect = drawManager.executeOnDraw(objectManager.getObjects());
+		if(headless) return;
+		
+		List<Rectangle> regions = drawManager.applyPendingDrawStates();
 		if(DrawManager.DEBUG_DRAW_RECT) {
 			panel.repaint();
-		}else {
-			if(drawRect != null) panel.repaint(drawRect);
+			return;
+		}
+		if(regions == null) return;
+		
+		//The RepaintManager unions every repaint() of a component, so each region is painted on its own
+		synchronized(paintLock) {
+			paintRegions.addAll(regions);
+			if(paintScheduled) return;
+			paintScheduled = true;
+		}
+		SwingUtilities.invokeLater(this::paintRegions);
+	}
+	
+	/**
+	 * Pinta, una por una, las regiones pendientes.
+	 * <p>
+	 * Metodo exclusivo para el hilo de Swing.
+	 */
+	private void paintRegions() {
+		List<Rectangle> regions;
+		synchronized(paintLock) {
+			regions = paintRegions;
+			paintRegions = new ArrayList<>();
+			paintScheduled = false;
+		}
+		
+		for(Rectangle region:regions) {
+			panel.paintImmediately(region);
 		}
 	}
 }
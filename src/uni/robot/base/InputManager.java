@@ -25,12 +25,19 @@ public class InputManager{
 	
 	private Map<Integer, Input> inputMap;
 	
+	/**
+	 * Crea un InputManager que escucha los eventos del panel especificado.
+	 * 
+	 * @param panel el panel a escuchar, o null si la ventana es headless (nunca recibe input)
+	 */
 	public InputManager(JPanel panel) {
 		//Init Mouse Listener
 		mouseInputListener = new MouseInputListener();
 		
-		panel.addMouseListener(mouseInputListener);
-		panel.addMouseMotionListener(mouseInputListener);
+		if(panel != null) {
+			panel.addMouseListener(mouseInputListener);
+			panel.addMouseMotionListener(mouseInputListener);
+		}
 		
 		//Init InputMap
 		inputMap = new HashMap<>();
@@ -0,0 +1,128 @@
+package uni.robot.base;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Imagen de tamanho conocido, dividida en bloques cuadrados cuyos pixeles se crean recien la primera vez que se
+ * dibujan, y luego se guardan.
+ * <p>
+ * Se dibuja con GameObject.drawLazyImage(), como una sola llamada de dibujo. Al repintar, los bloques que toca
+ * la region repintada se calculan por indice, por lo que el costo depende del tamanho de la region y no del
+ * tamanho de la imagen. Asi, de un fondo muy grande solo se crean los bloques visibles, y las filas de bloques
+ * que nunca se dibujan no ocupan memoria.
+ * <p>
+ * createBlock() se ejecuta en el hilo de Swing, por lo que no debe acceder a estado que el hilo de simulacion
+ * modifica.
+ * 
+ * @author Fabio Kita
+ * 
+ */
+public abstract class LazyImage {
+	private final int width;
+	private final int height;
+	private final int blockSize;
+	private final int blockColumnCount;
+	
+	//Indexed by block row and then block column, each row is null until one of its blocks is created
+	private final BufferedImage[][] blockRows;
+	
+	/**
+	 * Crea una imagen vacia, cuyos bloques se crearan al dibujarse.
+	 * 
+	 * @param width el ancho de la imagen, en pixeles
+	 * @param height el alto de la imagen, en pixeles
+	 * @param blockSize el ancho y alto de cada bloque, en pixeles
+	 */
+	public LazyImage(int width, int height, int blockSize) {
+		this.width = width;
+		this.height = height;
+		this.blockSize = blockSize;
+		this.blockColumnCount = (width + blockSize - 1)/blockSize;
+		this.blockRows = new BufferedImage[(height + blockSize - 1)/blockSize][];
+	}
+	
+	/**
+	 * Retorna el ancho de la imagen.
+	 * 
+	 * @return el ancho, en pixeles
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * Retorna el alto de la imagen.
+	 * 
+	 * @return el alto, en pixeles
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Dibuja, sin escalar, la parte de la imagen que esta dentro de la region a redibujar, creando los bloques
+	 * que todavia no existen.
+	 * 
+	 * @param g el {@link Graphics2D} que usara para dibujar
+	 * @param x la posicion x de la imagen, en pixeles
+	 * @param y la posicion y de la imagen, en pixeles
+	 * @param redrawRect la region a redibujar
+	 */
+	void draw(Graphics2D g, int x, int y, Rectangle redrawRect) {
+		int minX = Math.max(0, redrawRect.x - x);
+		int minY = Math.max(0, redrawRect.y - y);
+		int maxX = Math.min(width, redrawRect.x + redrawRect.width - x);
+		int maxY = Math.min(height, redrawRect.y + redrawRect.height - y);
+		if(minX >= maxX || minY >= maxY) return;
+		
+		for(int blockRow = minY/blockSize; blockRow <= (maxY - 1)/blockSize; blockRow++) {
+			for(int blockColumn = minX/blockSize; blockColumn <= (maxX - 1)/blockSize; blockColumn++) {
+				BufferedImage block = getBlock(blockRow, blockColumn);
+				int blockX = blockColumn*blockSize;
+				int blockY = blockRow*blockSize;
+				
+				//Only copy the part of the block inside of the redrawn region
+				int x1 = Math.max(minX, blockX);
+				int y1 = Math.max(minY, blockY);
+				int x2 = Math.min(maxX, blockX + block.getWidth());
+				int y2 = Math.min(maxY, blockY + block.getHeight());
+				g.drawImage(block, x + x1, y + y1, x + x2, y + y2,
+						x1 - blockX, y1 - blockY, x2 - blockX, y2 - blockY, null);
+			}
+		}
+	}
+	
+	/**
+	 * Crea los pixeles de un bloque de la imagen. Se llama una sola vez por bloque.
+	 * 
+	 * @param x la posicion x del bloque dentro de la imagen, en pixeles
+	 * @param y la posicion y del bloque dentro de la imagen, en pixeles
+	 * @param width el ancho del bloque, menor al tamanho de bloque en el borde derecho
+	 * @param height el alto del bloque, menor al tamanho de bloque en el borde inferior
+	 * @return una imagen de width x height pixeles
+	 */
+	protected abstract BufferedImage createBlock(int x, int y, int width, int height);
+	
+	//PRIVATE METHODS
+	/**
+	 * Retorna un bloque, creandolo con createBlock() si es la primera vez.
+	 */
+	private synchronized BufferedImage getBlock(int blockRow, int blockColumn) {
+		BufferedImage[] blocks = blockRows[blockRow];
+		if(blocks == null) {
+			blocks = new BufferedImage[blockColumnCount];
+			blockRows[blockRow] = blocks;
+		}
+		
+		BufferedImage block = blocks[blockColumn];
+		if(block == null) {
+			int x = blockColumn*blockSize;
+			int y = blockRow*blockSize;
+			block = createBlock(x, y, Math.min(blockSize, width - x), Math.min(blockSize, height - y));
+			blocks[blockColumn] = block;
+		}
+		return block;
+	}
+}
@@ -1,10 +1,8 @@
 package uni.robot.base;
 
-import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -15,13 +13,16 @@ import java.util.List;
  * 	- Durante el ciclo Draw, si toRedraw es true:<p>
  *		- Llama el metodo onDraw() del {@link GameObject} padre.<p>
  *		- El metodo onDraw() llama a los metodos draw de este objeto (ej. drawImage), lo que resulta en la 
- *		  cacheacion de un objeto DrawCall en la lista drawCallList.<p>
- *		- Retorna un rectangulo que representa la region que seria afectado por la
- *		   llamada onDraw(). Este rectangulo es usado para calcular la region a repintar total.<p>
+ *		  grabacion de la llamada dentro de un {@link ObjectDrawState}.<p>
+ *		- Agrega la region que seria afectado por la llamada onDraw() anterior y la actual a la region a 
+ *		  repintar total.<p>
+ *<p>
+ *		- Publica el {@link ObjectDrawState} grabado, que el {@link DrawManager} entrega al hilo de dibujo. Los 
+ *		  estados que el hilo de dibujo ya no usa vuelven a este objeto, y se reutilizan para grabar.<p>
  *<p>
  *	- Durante la repintada, en el metodo paintCompontent():<p>
- *		- Itera por todas las llamadas cacheadas y solo pinta las llamadas que son afectadas por la region a 
- *		  repintar total.<p>
+ *		- Itera por todas las llamadas del ultimo {@link ObjectDrawState} entregado y solo pinta las llamadas 
+ *		  que son afectadas por la region a repintar total.<p>
  * 
  * @author Fabio Kita
  *
@@ -32,26 +33,57 @@ class ObjectDrawManager{
 	private int zIndex = 0;
 	private boolean toRedraw = true;
 	
-	private final List<DrawCall> drawCallList = new ArrayList<>();
-	private Rectangle drawCallListRect = null;
+	//Draw calls recorded by the current onDraw() call, null outside of it
+	private ObjectDrawState recordingState = null;
+	
+	//The draw calls of the last onDraw() call, never modified while retained
+	private ObjectDrawState drawState = null;
+	
+	//A released state, reused by the next onDraw() call. Set by the draw thread
+	private final AtomicReference<ObjectDrawState> spareDrawState = new AtomicReference<>();
 	
 	public ObjectDrawManager(GameObject object) {
 		this.object = object;
 	}
 	
 	/**
-	 * Cachea en drawCallList una llamada de dibujo de imagen, para ser dibujado posteriormente.
+	 * Graba una llamada de dibujo de imagen, para ser dibujado posteriormente. Solo tiene efecto dentro 
+	 * del metodo onDraw().
 	 * 
 	 * @param image la imagen a dibujar
 	 * @param x La posicion x de la imagen a dibujar, en pixel
 	 * @param y La posicion y de la imagen a dibujar, en pixel
 	 * @param scaleX El escalado x de la imagen
 	 * @param scaleY El escalado y de la image
-	 * 
-	 * @see ImageDrawCall
 	 */
 	public void drawImage(BufferedImage image, int x, int y, double scaleX, double scaleY) {
-		this.drawCallList.add(new ImageDrawCall(image, x, y, scaleX, scaleY));
+		if(recordingState == null) return;
+		
+		int width = (int) Math.round(scaleX * image.getWidth());
+		int height = (int) Math.round(scaleY * image.getHeight());
+		
+		//Regions of the atlas are recorded as part of its sheet, so painting them never switches images
+		TextureAtlas atlas = object.getResourceManager().getAtlas();
+		BufferedImage sheet = atlas == null ? null : atlas.getSheet(image);
+		if(sheet != null) {
+			recordingState.addImage(sheet, TextureAtlas.getRegionX(image), TextureAtlas.getRegionY(image), 
+					image.getWidth(), image.getHeight(), x, y, width, height);
+		}else {
+			recordingState.addImage(image, 0, 0, image.getWidth(), image.getHeight(), x, y, width, height);
+		}
+	}
+	
+	/**
+	 * Graba una llamada de dibujo de un {@link LazyImage}, sin escalar. Solo tiene efecto dentro del metodo 
+	 * onDraw().
+	 * 
+	 * @param image la imagen perezosa a dibujar
+	 * @param x La posicion x de la imagen a dibujar, en pixel
+	 * @param y La posicion y de la imagen a dibujar, en pixel
+	 */
+	public void drawLazyImage(LazyImage image, int x, int y) {
+		if(recordingState == null) return;
+		recordingState.addLazyImage(image, x, y);
 	}
 	
 	/**
@@ -91,109 +123,66 @@ class ObjectDrawManager{
 	}
 	
 	/**
-	 * Llama el metodo onDraw() del {@link GameObject} padre y cachea todas las llamadas de dibujo realizada 
-	 * dentro de dicho metodo, luego calcula y cachea la region que sera que requeriria repintar.
+	 * Llama el metodo onDraw() del {@link GameObject} padre y graba todas las llamadas de dibujo realizada 
+	 * dentro de dicho metodo en un {@link ObjectDrawState}, reutilizando un estado soltado si es posible.
+	 * <p>
+	 * Agrega dentro de dirtyRegion la region del estado anterior y la del nuevo, y luego suelta el estado 
+	 * anterior.
+	 * 
+	 * @param dirtyRegion la region a repintar total
 	 */
-	public void updateDrawCalls() {
-		//EMPTY THE PREVIOUS DRAW CALLS
-		drawCallList.clear();
+	public void updateDrawCalls(DirtyRegion dirtyRegion) {
+		//GET AN EMPTY STATE
+		recordingState = spareDrawState.getAndSet(null);
+		if(recordingState == null) recordingState = new ObjectDrawState(this, object.getId());
+		recordingState.clear();
 		
 		//GET ALL THE CURRENT DRAW CALLS
 		object.onDraw();
 		
-		//GET/DETERMINE THE CURRENT DRAW RECT
-		Rectangle newDrawCallListRect = null;
-		for(DrawCall drawCall:drawCallList) {
-			Rectangle drawCallRect = drawCall.getDrawRegion();
-			if(drawCallRect != null) {
-				if(newDrawCallListRect == null) newDrawCallListRect = drawCallRect;
-				else newDrawCallListRect.add(drawCallRect);
-			}
-		}
+		//PUBLISH THE NEW STATE, ADDING BOTH REGIONS TO REPAINT
+		ObjectDrawState previousState = drawState;
+		drawState = recordingState;
+		recordingState = null;
+		drawState.finish(zIndex);
+		drawState.addDrawRegionTo(dirtyRegion);
 		
-		//SET THE NEW DRAW RECT AS THE CURRENT ONE.
-		drawCallListRect = newDrawCallListRect;
+		if(previousState != null) {
+			previousState.addDrawRegionTo(dirtyRegion);
+			previousState.release();
+		}
 	}
-	
+		
 	/**
-	 * Retorna un {@link Rectangle} que representa la region afectada por el metodo onDraw() del 
-	 * {@link GameObject} padre.
+	 * Recibe un estado que ya nadie retiene, para reutilizarlo en el siguiente onDraw().
+	 * <p>
+	 * Puede ser llamado desde cualquier hilo.
 	 * 
-	 * @return un {@link Rectangle} que representa la region a repintar
+	 * @param state el estado soltado
 	 */
-	public Rectangle getDrawCallsRectangle() {
-		if(this.drawCallListRect == null) return null;
-		return (Rectangle) this.drawCallListRect.clone();
+	void recycleDrawState(ObjectDrawState state) {
+		spareDrawState.set(state);
 	}
 	
 	/**
-	 * Dibuja las llamadas cacheadas usando el {@link Graphics2D} pasado.
+	 * Retorna el ultimo {@link ObjectDrawState} creado por updateDrawCalls().
 	 * 
-	 * @param g el {@link Graphics2D} que usara para dibujar
-	 * @param redrawRect si no es null, solo dibuja las llamadas que intersectan con el rectangulo pasado
+	 * @return el ultimo estado de dibujo, o null si el objeto nunca se dibujo
 	 */
-	public void draw(Graphics2D g, Rectangle redrawRect) {
-		for(DrawCall drawCall:drawCallList) {
-			Rectangle drawCallRect = drawCall.getDrawRegion();
-			if(drawCallRect != null && drawCallRect.intersects(redrawRect)) {
-				drawCall.draw(g);
-			}
-		}
+	public ObjectDrawState getDrawState() {
+		return drawState;
 	}
 	
-	//PRIVATE CLASSES
 	/**
-	 * Interfaz que representa una llamada de dibujo generica.
+	 * Copia la region afectada por el metodo onDraw() del {@link GameObject} padre dentro del 
+	 * {@link Rectangle} pasado.
 	 * 
-	 * @author Fabio Kita
+	 * @param rect el {@link Rectangle} donde copiar la region a repintar
+	 * @return si el objeto dibujo algo, si no, el rectangulo no cambia
 	 */
-	private interface DrawCall{
-		/**
-		 * Retorna la region que seria afectada por la llamada de dibujo. 
-		 * 
-		 * @return La region que seria afectada por la llamada de dibujo. 
-		 */
-		public Rectangle getDrawRegion();
-		
-		/**
-		 * Ejecuta la llamada de dibujo.
-		 * 
-		 * @param g el objeto {@link Graphics2D} que usara para dibujar.
-		 */
-		public void draw(Graphics2D g);
-	};
-	
-	
-	/**
-	 * Clase que representa una llamada de dibujo de imagen.
-	 *
-	 * @author Fabio Kita
-	 */
-	private class ImageDrawCall implements DrawCall{
-		private int x;
-		private int y;
-		private int width;
-		private int height;
-		private BufferedImage image;
-		
-		public ImageDrawCall(BufferedImage image, int x, int y, double scaleX, double scaleY) {
-			this.image = image;
-			this.x = x;
-			this.y = y;
-			this.width = (int) Math.round(scaleX * image.getWidth());
-			this.height = (int) Math.round(scaleY * image.getHeight());
-		}
-
-		@Override
-		public Rectangle getDrawRegion() {
-			return new Rectangle(x, y, width+1, height+1);
-		}
-
-		@Override
-		public void draw(Graphics2D g) {
-			g.drawImage(image, x, y, width, height, null);
-		}
-		
+	public boolean getDrawCallsRectangle(Rectangle rect) {
+		if(this.drawState == null) return false;
+		return this.drawState.getDrawRegion(rect);
 	}
 	
 	//TODO IF NECESSARY: Add other draw call
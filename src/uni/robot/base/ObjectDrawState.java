@@ -0,0 +1,310 @@
+package uni.robot.base;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Estado de dibujo de un {@link GameObject}, es decir, las llamadas de dibujo cacheadas por su ultimo metodo
+ * onDraw(), junto con su z-index y la region que ocupan.
+ * <p>
+ * Las llamadas se guardan en arreglos paralelos (imagen, rectangulo de origen, posicion y tamanho), y la region 
+ * se calcula mientras se graban, por lo que grabar y dibujar las llamadas no crea ningun objeto. El rectangulo 
+ * de origen permite dibujar una region de una hoja (ver {@link TextureAtlas}) sin usar una imagen aparte. Las
+ * llamadas de un {@link LazyImage} guardan la imagen perezosa, que solo crea y dibuja los bloques que toca la
+ * region a redibujar.
+ * <p>
+ * Es grabado por el hilo de simulacion y consumido por el hilo de dibujo (ver {@link DrawManager}), por lo que
+ * nunca cambia mientras es usado. Cada contenedor que lo guarda (el {@link ObjectDrawManager} que lo creo, los
+ * estados pendientes y el indice de dibujo) lo retiene con retain() y lo suelta con release(). Cuando nadie
+ * lo retiene, vuelve a su {@link ObjectDrawManager} para ser reutilizado en el siguiente onDraw().
+ * 
+ * @author Fabio Kita
+ * 
+ */
+class ObjectDrawState {
+	private static final int INITIAL_CAPACITY = 4;
+	
+	private final ObjectDrawManager owner;
+	private final int id;
+	private final AtomicInteger references;
+	
+	private int zIndex;
+	
+	//Draw calls, as parallel arrays
+	private BufferedImage[] images;
+	private LazyImage[] lazyImages;
+	private int[] srcXs;
+	private int[] srcYs;
+	private int[] srcWidths;
+	private int[] srcHeights;
+	private int[] xs;
+	private int[] ys;
+	private int[] widths;
+	private int[] heights;
+	private int size;
+	
+	//Region of all the draw calls, empty if minX > maxX
+	private int minX;
+	private int minY;
+	private int maxX;
+	private int maxY;
+	
+	public ObjectDrawState(ObjectDrawManager owner, int id) {
+		this.owner = owner;
+		this.id = id;
+		this.references = new AtomicInteger();
+		
+		this.images = new BufferedImage[INITIAL_CAPACITY];
+		this.lazyImages = new LazyImage[INITIAL_CAPACITY];
+		this.srcXs = new int[INITIAL_CAPACITY];
+		this.srcYs = new int[INITIAL_CAPACITY];
+		this.srcWidths = new int[INITIAL_CAPACITY];
+		this.srcHeights = new int[INITIAL_CAPACITY];
+		this.xs = new int[INITIAL_CAPACITY];
+		this.ys = new int[INITIAL_CAPACITY];
+		this.widths = new int[INITIAL_CAPACITY];
+		this.heights = new int[INITIAL_CAPACITY];
+		this.clear();
+	}
+	
+	//RECORDING
+	/**
+	 * Vacia las llamadas de dibujo, para comenzar a grabar de nuevo.
+	 */
+	public void clear() {
+		size = 0;
+		minX = Integer.MAX_VALUE;
+		minY = Integer.MAX_VALUE;
+		maxX = Integer.MIN_VALUE;
+		maxY = Integer.MIN_VALUE;
+	}
+	
+	/**
+	 * Graba una llamada de dibujo de imagen.
+	 * 
+	 * @param image la imagen a dibujar, o la hoja que la contiene
+	 * @param srcX la posicion x de la imagen dentro de la hoja, en pixeles
+	 * @param srcY la posicion y de la imagen dentro de la hoja, en pixeles
+	 * @param srcWidth el ancho de la imagen dentro de la hoja, en pixeles
+	 * @param srcHeight el alto de la imagen dentro de la hoja, en pixeles
+	 * @param x la posicion x, en pixeles
+	 * @param y la posicion y, en pixeles
+	 * @param width el ancho con el que se dibuja la imagen, en pixeles
+	 * @param height el alto con el que se dibuja la imagen, en pixeles
+	 */
+	public void addImage(BufferedImage image, int srcX, int srcY, int srcWidth, int srcHeight, 
+			int x, int y, int width, int height) {
+		add(image, null, srcX, srcY, srcWidth, srcHeight, x, y, width, height);
+	}
+	
+	/**
+	 * Graba una llamada de dibujo de un {@link LazyImage}, sin escalar. Sus bloques no se crean hasta dibujarse.
+	 * 
+	 * @param image la imagen perezosa a dibujar
+	 * @param x la posicion x, en pixeles
+	 * @param y la posicion y, en pixeles
+	 */
+	public void addLazyImage(LazyImage image, int x, int y) {
+		add(null, image, 0, 0, image.getWidth(), image.getHeight(), x, y, image.getWidth(), image.getHeight());
+	}
+	
+	private void add(BufferedImage image, LazyImage lazyImage, int srcX, int srcY, int srcWidth, int srcHeight, 
+			int x, int y, int width, int height) {
+		if(size == images.length) {
+			int capacity = size*2;
+			images = Arrays.copyOf(images, capacity);
+			lazyImages = Arrays.copyOf(lazyImages, capacity);
+			srcXs = Arrays.copyOf(srcXs, capacity);
+			srcYs = Arrays.copyOf(srcYs, capacity);
+			srcWidths = Arrays.copyOf(srcWidths, capacity);
+			srcHeights = Arrays.copyOf(srcHeights, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			widths = Arrays.copyOf(widths, capacity);
+			heights = Arrays.copyOf(heights, capacity);
+		}
+		
+		images[size] = image;
+		lazyImages[size] = lazyImage;
+		srcXs[size] = srcX;
+		srcYs[size] = srcY;
+		srcWidths[size] = srcWidth;
+		srcHeights[size] = srcHeight;
+		xs[size] = x;
+		ys[size] = y;
+		widths[size] = width;
+		heights[size] = height;
+		size++;
+		
+		//The region of each call is one pixel bigger than the image
+		minX = Math.min(minX, x);
+		minY = Math.min(minY, y);
+		maxX = Math.max(maxX, x + width + 1);
+		maxY = Math.max(maxY, y + height + 1);
+	}
+	
+	/**
+	 * Termina de grabar, dejando el estado retenido una vez por su {@link ObjectDrawManager}.
+	 * 
+	 * @param zIndex el z-index del objeto
+	 */
+	public void finish(int zIndex) {
+		this.zIndex = zIndex;
+		this.references.set(1);
+	}
+	
+	//REFERENCES
+	/**
+	 * Retiene este estado, evitando que sea reutilizado.
+	 */
+	public void retain() {
+		references.incrementAndGet();
+	}
+	
+	/**
+	 * Suelta este estado. Si nadie mas lo retiene, lo devuelve a su {@link ObjectDrawManager}.
+	 */
+	public void release() {
+		if(references.decrementAndGet() == 0) owner.recycleDrawState(this);
+	}
+	
+	//GETTERS
+	/**
+	 * Retorna el id del {@link GameObject} que creo este estado.
+	 * 
+	 * @return el id del objeto
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * Retorna el z-index del objeto al momento de crear este estado.
+	 * 
+	 * @return el z-index
+	 */
+	public int getZIndex() {
+		return zIndex;
+	}
+	
+	/**
+	 * Retorna si no hay llamadas de dibujo, es decir, si el estado no ocupa ninguna region.
+	 * 
+	 * @return si esta vacio
+	 */
+	public boolean isEmpty() {
+		return minX > maxX;
+	}
+	
+	/**
+	 * Retorna la posicion x de la region afectada por las llamadas de dibujo.
+	 * 
+	 * @return la posicion x, sin sentido si el estado esta vacio
+	 */
+	public int getX() {
+		return minX;
+	}
+	
+	/**
+	 * Retorna la posicion y de la region afectada por las llamadas de dibujo.
+	 * 
+	 * @return la posicion y, sin sentido si el estado esta vacio
+	 */
+	public int getY() {
+		return minY;
+	}
+	
+	/**
+	 * Retorna el ancho de la region afectada por las llamadas de dibujo.
+	 * 
+	 * @return el ancho, sin sentido si el estado esta vacio
+	 */
+	public int getWidth() {
+		return maxX - minX;
+	}
+	
+	/**
+	 * Retorna el alto de la region afectada por las llamadas de dibujo.
+	 * 
+	 * @return el alto, sin sentido si el estado esta vacio
+	 */
+	public int getHeight() {
+		return maxY - minY;
+	}
+	
+	/**
+	 * Copia la region afectada por las llamadas de dibujo dentro del rectangulo pasado, para poder reutilizarlo.
+	 * 
+	 * @param rect el rectangulo donde copiar la region, no cambia si no hay llamadas de dibujo
+	 * @return si hay llamadas de dibujo
+	 */
+	public boolean getDrawRegion(Rectangle rect) {
+		if(isEmpty()) return false;
+		rect.setBounds(getX(), getY(), getWidth(), getHeight());
+		return true;
+	}
+	
+	/**
+	 * Agrega la region afectada por las llamadas de dibujo dentro del {@link DirtyRegion} pasado.
+	 * 
+	 * @param dirtyRegion la region a redibujar
+	 */
+	public void addDrawRegionTo(DirtyRegion dirtyRegion) {
+		if(isEmpty()) return;
+		dirtyRegion.add(getX(), getY(), getWidth(), getHeight());
+	}
+	
+	//DRAWING
+	/**
+	 * Dibuja las llamadas cacheadas usando el {@link Graphics2D} pasado.
+	 * <p>
+	 * Las imagenes escaladas se dibujan enteras, ya que el clip limita los pixeles pintados. Las imagenes sin
+	 * escalar solo copian la parte que esta dentro de la region a redibujar, y los {@link LazyImage} (ej. un 
+	 * fondo cacheado) solo recorren los bloques que la region toca.
+	 * 
+	 * @param g el {@link Graphics2D} que usara para dibujar
+	 * @param redrawRect solo dibuja las llamadas que intersectan con el rectangulo pasado
+	 */
+	public void draw(Graphics2D g, Rectangle redrawRect) {
+		for(int i = 0; i < size; i++) {
+			int x = xs[i];
+			int y = ys[i];
+			int width = widths[i];
+			int height = heights[i];
+			if(!intersects(x, y, x + width + 1, y + height + 1, redrawRect)) continue;
+			
+			//Lazy images find and create the blocks of the region by themselves
+			if(lazyImages[i] != null) {
+				lazyImages[i].draw(g, x, y, redrawRect);
+				continue;
+			}
+			
+			BufferedImage image = images[i];
+			int srcX = srcXs[i];
+			int srcY = srcYs[i];
+			if(width != srcWidths[i] || height != srcHeights[i]) {
+				g.drawImage(image, x, y, x + width, y + height, 
+						srcX, srcY, srcX + srcWidths[i], srcY + srcHeights[i], null);
+				continue;
+			}
+			
+			int x1 = Math.max(x, redrawRect.x);
+			int y1 = Math.max(y, redrawRect.y);
+			int x2 = Math.min(x + width, redrawRect.x + redrawRect.width);
+			int y2 = Math.min(y + height, redrawRect.y + redrawRect.height);
+			if(x1 >= x2 || y1 >= y2) continue;
+			
+			g.drawImage(image, x1, y1, x2, y2, srcX + x1 - x, srcY + y1 - y, srcX + x2 - x, srcY + y2 - y, null);
+		}
+	}
+	
+	//PRIVATE METHODS
+	private static boolean intersects(int minX, int minY, int maxX, int maxY, Rectangle rect) {
+		return minX < maxX && minY < maxY && rect.width > 0 && rect.height > 0
+				&& minX < rect.x + rect.width && rect.x < maxX
+				&& minY < rect.y + rect.height && rect.y < maxY;
+	}
+}
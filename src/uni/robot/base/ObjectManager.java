@@ -1,20 +1,36 @@
 package uni.robot.base;
 
+import java.util.AbstractCollection;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * Objeto que compone a {@link GameWindow}, encargado de almacenar los {@link GameObject} de una ventana.
+ * <p>
+ * Los objetos se guardan en un arreglo ordenado por id. Como los ids son crecientes, agregar un objeto nuevo
+ * casi siempre es agregarlo al final, y remover un objeto solo deja un hueco (null) en su posicion; los
+ * huecos se compactan cuando son mas de la mitad del arreglo.
+ * <p>
+ * Recorrer los objetos no copia ni aloca nada: se recorre el {@link Snapshot} actual, que nunca se achica ni
+ * se reordena. Los objetos agregados mientras se recorre no aparecen, y los removidos se saltean.
+ * <p>
+ * Ademas de todos los objetos, guarda aparte los objetos activos, es decir, los que no estan dormidos (ver 
+ * {@link GameObject#setSleeping(boolean)}). El ciclo Update solo recorre los objetos activos.
+ * 
  * @author Fabio Kita
  *
  */
 class ObjectManager {
-	private Map<Integer, GameObject> objectMap;
+	private final SortedObjectArray objects;
+	
+	//Objects that aren't sleeping, the only ones updated
+	private final SortedObjectArray activeObjects;
 	
 	public ObjectManager() {
-		objectMap = new TreeMap<>();
+		this.objects = new SortedObjectArray();
+		this.activeObjects = new SortedObjectArray();
 	}
 	
 	/**
@@ -23,7 +39,9 @@ class ObjectManager {
 	 * @param newObject El objeto a agregar
 	 */
 	public synchronized void addObject(GameObject newObject) {
-		objectMap.put(newObject.getId(), newObject);
+		objects.add(newObject);
+		if(newObject.isSleeping()) activeObjects.remove(newObject.getId());
+		else activeObjects.add(newObject);
 	}
 	
 	/**
@@ -32,7 +50,8 @@ class ObjectManager {
 	 * @param id El id del obejto a remover
 	 */
 	public synchronized void removeObject(int id) {
-		objectMap.remove(id);
+		objects.remove(id);
+		activeObjects.remove(id);
 	}
 	
 	/**
@@ -40,36 +59,247 @@ class ObjectManager {
 	 * 
 	 * @param object el objeto a remover
 	 */
-	public synchronized void removeObject(GameObject object) {
+	public void removeObject(GameObject object) {
 		this.removeObject(object.getId());
 	}
 	
+	/**
+	 * Actualiza si el objeto esta entre los objetos activos, segun si esta dormido o no.
+	 * 
+	 * @param object el objeto que cambio de estado
+	 */
+	public synchronized void updateSleeping(GameObject object) {
+		if(objects.get(object.getId()) != object) return;
+		
+		if(object.isSleeping()) activeObjects.remove(object.getId());
+		else activeObjects.add(object);
+	}
+	
 	/**
 	 * Consigue un objeto segun su id.
 	 * 
 	 * @param id El id del Objeto
 	 * @return El objeto con el id especificado
 	 */
-	public synchronized GameObject getObject(int id) {
-		return objectMap.get(id);
+	public GameObject getObject(int id) {
+		return objects.get(id);
 	}
 	
 	/**
-	 * Retorna una copia de la lista ordenada de objetos, segun id.
-	 * @return Una lista de objetos
+	 * Retorna una vista de solo lectura de los objetos, ordenados segun id. No copia los objetos.
+	 * 
+	 * @return Una coleccion de objetos
 	 */
-	public synchronized Collection<GameObject> getObjects(){
-		return new LinkedList<>(objectMap.values());
+	public Collection<GameObject> getObjects(){
+		return new ObjectView(objects.snapshot);
 	}
 	
 	/**
-	 * Ejecuta el metodo update de todos los objetos.
+	 * Ejecuta el metodo update de todos los objetos activos.
 	 * 
 	 * @see GameObject
 	 */
 	public void updateObjects() {
-		for(GameObject object:getObjects()) {
-			object.update();
+		Snapshot current = activeObjects.snapshot;
+		GameObject[] array = current.objects;
+		
+		for(int i = 0; i < current.size; i++) {
+			GameObject object = array[i];
+			if(object != null) object.update();
+		}
+	}
+	
+	//PRIVATE CLASSES
+	/**
+	 * Arreglo de objetos ordenado por id, publicado como un {@link Snapshot}. Solo es modificado dentro de los 
+	 * metodos sincronizados de {@link ObjectManager}.
+	 * 
+	 * @author Fabio Kita
+	 */
+	private static class SortedObjectArray{
+		private static final int INITIAL_CAPACITY = 16;
+	
+		//Compacting below this amount of holes isn't worth it
+		private static final int MIN_COMPACT_HOLES = 16;
+	
+		//Replaced on every change, so other threads always see a consistent array and size
+		private volatile Snapshot snapshot;
+	
+		public SortedObjectArray() {
+			snapshot = new Snapshot(new GameObject[INITIAL_CAPACITY], new int[INITIAL_CAPACITY], 0, 0);
+		}
+	
+		/**
+		 * Agrega un objeto, o lo reemplaza si ya hay uno con el mismo id.
+		 * 
+		 * @param newObject El objeto a agregar
+		 */
+		public void add(GameObject newObject) {
+			Snapshot current = snapshot;
+			int id = newObject.getId();
+		
+			//Common case, the newest object goes at the end
+			if(current.size == 0 || id > current.ids[current.size-1]) {
+				GameObject[] objects = current.objects;
+				int[] ids = current.ids;
+				if(current.size == objects.length) {
+					objects = Arrays.copyOf(objects, objects.length*2);
+					ids = Arrays.copyOf(ids, ids.length*2);
+				}
+				objects[current.size] = newObject;
+				ids[current.size] = id;
+				snapshot = new Snapshot(objects, ids, current.size+1, current.holes);
+				return;
+			}
+		
+			int index = Arrays.binarySearch(current.ids, 0, current.size, id);
+			if(index >= 0) {
+				//Same id, fill the hole or replace the object
+				int holes = current.holes;
+				if(current.objects[index] == null) holes--;
+				current.objects[index] = newObject;
+				snapshot = new Snapshot(current.objects, current.ids, current.size, holes);
+				return;
+			}
+		
+			//An old object added again, insert it into new arrays so readers never see the shift
+			int insertAt = -index - 1;
+			int capacity = Math.max(INITIAL_CAPACITY, current.size+1);
+			GameObject[] objects = new GameObject[capacity];
+			int[] ids = new int[capacity];
+		
+			System.arraycopy(current.objects, 0, objects, 0, insertAt);
+			System.arraycopy(current.ids, 0, ids, 0, insertAt);
+			objects[insertAt] = newObject;
+			ids[insertAt] = id;
+			System.arraycopy(current.objects, insertAt, objects, insertAt+1, current.size-insertAt);
+			System.arraycopy(current.ids, insertAt, ids, insertAt+1, current.size-insertAt);
+		
+			snapshot = new Snapshot(objects, ids, current.size+1, current.holes);
+		}
+	
+		/**
+		 * Remueve un objeto, segun id. No hace nada si no esta.
+		 * 
+		 * @param id El id del obejto a remover
+		 */
+		public void remove(int id) {
+			Snapshot current = snapshot;
+		
+			int index = Arrays.binarySearch(current.ids, 0, current.size, id);
+			if(index < 0 || current.objects[index] == null) return;
+		
+			current.objects[index] = null;
+			int holes = current.holes + 1;
+		
+			if(holes >= MIN_COMPACT_HOLES && holes > current.size/2) {
+				snapshot = compact(current);
+			}else {
+				snapshot = new Snapshot(current.objects, current.ids, current.size, holes);
+			}
+		}
+	
+		/**
+		 * Consigue un objeto segun su id.
+		 * 
+		 * @param id El id del Objeto
+		 * @return El objeto con el id especificado
+		 */
+		public GameObject get(int id) {
+			Snapshot current = snapshot;
+			int index = Arrays.binarySearch(current.ids, 0, current.size, id);
+			if(index < 0) return null;
+			return current.objects[index];
+		}
+	
+		/**
+		 * Crea un snapshot nuevo sin huecos, en arreglos nuevos.
+		 * 
+		 * @param current el snapshot actual
+		 * @return el snapshot compactado
+		 */
+		private Snapshot compact(Snapshot current) {
+			int size = current.size - current.holes - 1;
+			int capacity = Math.max(INITIAL_CAPACITY, size*2);
+			GameObject[] objects = new GameObject[capacity];
+			int[] ids = new int[capacity];
+		
+			int j = 0;
+			for(int i = 0; i < current.size; i++) {
+				if(current.objects[i] == null) continue;
+				objects[j] = current.objects[i];
+				ids[j] = current.ids[i];
+				j++;
+			}
+		
+			return new Snapshot(objects, ids, j, 0);
+		}
+	}
+	
+	/**
+	 * Los arreglos de objetos e ids, junto con la cantidad de posiciones usadas y de huecos.
+	 * 
+	 * @author Fabio Kita
+	 */
+	private static class Snapshot{
+		private final GameObject[] objects;
+		private final int[] ids;
+		private final int size;
+		private final int holes;
+		
+		public Snapshot(GameObject[] objects, int[] ids, int size, int holes) {
+			this.objects = objects;
+			this.ids = ids;
+			this.size = size;
+			this.holes = holes;
+		}
+	}
+	
+	/**
+	 * Vista de solo lectura de un {@link Snapshot}, que saltea los huecos.
+	 * 
+	 * @author Fabio Kita
+	 */
+	private static class ObjectView extends AbstractCollection<GameObject>{
+		private final Snapshot snapshot;
+		
+		public ObjectView(Snapshot snapshot) {
+			this.snapshot = snapshot;
+		}
+		
+		@Override
+		public Iterator<GameObject> iterator() {
+			return new Iterator<GameObject>() {
+				private int index = 0;
+				private GameObject nextObject = findNext();
+				
+				@Override
+				public boolean hasNext() {
+					return nextObject != null;
+				}
+				
+				@Override
+				public GameObject next() {
+					if(nextObject == null) throw new NoSuchElementException();
+					GameObject object = nextObject;
+					nextObject = findNext();
+					return object;
+				}
+				
+				//Reads each position once, so a removal while iterating never returns null
+				private GameObject findNext() {
+					while(index < snapshot.size) {
+						GameObject object = snapshot.objects[index++];
+						if(object != null) return object;
+					}
+					return null;
+				}
+			};
+		}
+		
+		@Override
+		public int size() {
+			return snapshot.size - snapshot.holes;
 		}
 	}
 }
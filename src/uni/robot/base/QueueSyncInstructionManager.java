@@ -0,0 +1,161 @@
+package uni.robot.base;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Implementacion de {@link SyncInstructionManager} basada en una fila concurrente.
+ * 
+ * Cuando un hilo productor manda un mensaje a traves de este objeto, el mensaje es agregado a una fila y el hilo
+ * es pausado, hasta que el hilo consumidor procese y mande una respuesta.
+ * <p>
+ * La espera usa LockSupport en lugar de synchronized, para no fijar (pin) los hilos virtuales a su hilo 
+ * portador mientras esperan.
+ * 
+ * @author Fabio Kita
+ *
+ */
+class QueueSyncInstructionManager extends SyncInstructionManager {
+	private Queue<SyncInstruction> instructionQueue;
+	
+	public QueueSyncInstructionManager() {
+		this.instructionQueue = new ConcurrentLinkedQueue<>();
+	}
+	
+	//Producer Methods
+	@Override
+	public Object sendInstruction(Object message) {
+		SyncInstruction instruction = new SyncInstruction(message);
+		instructionQueue.add(instruction);
+		return instruction.waitInstruction();
+	}
+	
+	@Override
+	public Object[] sendInstructions(Object[] messages) {
+		SyncInstruction instruction = new SyncInstruction(messages);
+		instructionQueue.add(instruction);
+		return (Object[]) instruction.waitInstruction();
+	}
+	
+	@Override
+	public CompletableFuture<Object> sendInstructionAsync(Object message) {
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		instructionQueue.add(new SyncInstruction(message, future));
+		return future;
+	}
+	
+	//Consumer Methods
+	@Override
+	public Object readInstruction() {
+		SyncInstruction instruction = instructionQueue.peek();
+		if(instruction == null) return null;
+		return instruction.getInstruction();
+	}
+	
+	@Override
+	public void finishInstruction(Object message) {
+		SyncInstruction instruction = instructionQueue.peek();
+		if(instruction == null) throw new RuntimeException("There's no current instruction.");
+		if(instruction.finishMessage(message)) {
+			instructionQueue.poll();
+			instruction.markAsDone();
+		}
+	}
+}
+
+class SyncInstruction{
+	private volatile boolean done;
+	private final Thread waiter;
+	private Object message;
+	private Object response;
+	
+	//Only used when the instruction is a batch of messages
+	private Object[] batch;
+	private Object[] batchResponses;
+	private int batchIndex;
+	
+	//Only used when the instruction was sent asynchronously
+	private CompletableFuture<Object> future;
+	
+	public SyncInstruction(Object message) {
+		this(message, null);
+	}
+	
+	public SyncInstruction(Object message, CompletableFuture<Object> future) {
+		if(message == null) 
+			throw new IllegalArgumentException("The message cannot be null.");
+		
+		this.done = false;
+		this.waiter = future == null ? Thread.currentThread() : null;
+		this.message = message;
+		this.response = null;
+		this.future = future;
+	}
+	
+	public SyncInstruction(Object[] messages) {
+		if(messages == null || messages.length == 0) 
+			throw new IllegalArgumentException("The message batch cannot be null or empty.");
+		for(Object message:messages) {
+			if(message == null) 
+				throw new IllegalArgumentException("The message cannot be null.");
+		}
+		
+		this.done = false;
+		this.waiter = Thread.currentThread();
+		this.batch = messages.clone();
+		this.batchResponses = new Object[messages.length];
+		this.batchIndex = 0;
+		this.message = batch[0];
+		this.response = null;
+	}
+	
+	public Object getInstruction() {
+		return message;
+	}
+	
+	/**
+	 * Guarda la respuesta del mensaje actual y avanza al siguiente mensaje del lote.
+	 * 
+	 * @param response la respuesta del mensaje actual
+	 * @return true si ya no quedan mensajes por responder
+	 */
+	public boolean finishMessage(Object response) {
+		if(batch == null) {
+			this.response = response;
+			return true;
+		}
+		
+		batchResponses[batchIndex++] = response;
+		if(batchIndex < batch.length) {
+			this.message = batch[batchIndex];
+			return false;
+		}
+		
+		this.response = batchResponses;
+		return true;
+	}
+	
+	public Object waitInstruction(){
+		//Interrupts are ignored, but the flag is restored once the response arrives
+		boolean interrupted = false;
+		while(!done) {
+			LockSupport.park(this);
+			if(Thread.interrupted()) interrupted = true;
+		}
+		if(interrupted) Thread.currentThread().interrupt();
+		
+		return response;
+	}
+	
+	public void markAsDone() {
+		if(future != null) {
+			future.complete(response);
+			return;
+		}
+		
+		this.done = true;
+		LockSupport.unpark(waiter);
+	}
+}
\ No newline at end of file
@@ -1,30 +1,59 @@
 package uni.robot.base;
 
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.net.URL;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.imageio.ImageIO;
 
 
 /**
  * Objeto que compone a {@link GameLoop}, responsable de cargar y almacenar recursos (ej. imagenes).
+ * <p>
+ * Los recursos se guardan en un mapa concurrente como {@link CompletableFuture}, por lo que pueden ser cargados 
+ * desde varios hilos a la vez (ej. ventanas que se actualizan en paralelo), y cada recurso se carga una sola vez.
+ * Las imagenes pueden precargarse en paralelo con preloadImages(); loadImage() solo espera si la imagen pedida 
+ * todavia se esta cargando.
+ * <p>
+ * Las imagenes pasadas a buildAtlas() se copian a un {@link TextureAtlas} cuando terminan de cargarse, y desde 
+ * entonces las imagenes y sprites cargados son regiones de la hoja del atlas.
  * 
  * @author Fabio Kita
  *
  */
 public class ResourceManager {
-	private Map<String, Object> resourceMap;
+	private Map<String, CompletableFuture<BufferedImage>> resourceMap;
+	private Map<String, Sprite> spriteMap;
+	
+	//Created on the first preload
+	private ForkJoinPool loadPool;
+	
+	//The last atlas built, null if there is none
+	private volatile TextureAtlas atlas = null;
 	
 	public ResourceManager() {
-		this.resourceMap = new HashMap<>();
+		this.resourceMap = new ConcurrentHashMap<>();
+		this.spriteMap = new ConcurrentHashMap<>();
 	}
 	
 	/**
 	 * Carga y retorna un archivo de imagen como un BufferedImage. Si la imagen fue cargado previamente, 
 	 * este retorna la imagen cacheada, en lugar de recargarla.
+	 * <p>
+	 * La imagen se convierte una sola vez al formato de pixel de la pantalla (ver createCompatibleImage()), 
+	 * para que dibujarla no requiera convertir pixeles.
+	 * <p>
+	 * Puede ser llamado desde cualquier hilo. Si dos hilos cargan la misma imagen a la vez, uno la carga y el 
+	 * otro espera. Si la imagen se esta precargando, espera a que termine.
 	 * 
 	 * @param filename El nombre de la imagen.
 	 * @return un objeto {@link BufferedImage}
@@ -33,19 +62,204 @@ public class ResourceManager {
 		//FORMAT FILENAME
 		String path = formatFileName(filename);
 		
-		//IF ALREADY LOADED, RETURN.
-		if(resourceMap.containsKey(path)) 
-			return (BufferedImage) resourceMap.get(filename);
+		//GET THE CACHED OR IN-FLIGHT IMAGE
+		CompletableFuture<BufferedImage> future = resourceMap.get(path);
+		if(future == null) {
+			//RESERVE THE LOAD, AND READ THE IMAGE IN THIS THREAD, OUTSIDE OF THE MAP
+			CompletableFuture<BufferedImage> newFuture = new CompletableFuture<>();
+			future = resourceMap.putIfAbsent(path, newFuture);
+			if(future == null) {
+				future = newFuture;
+				try {
+					newFuture.complete(readImage(path));
+				}catch(RuntimeException e) {
+					newFuture.completeExceptionally(e);
+				}
+			}
+		}
+		
+		try {
+			return future.join();
+		}catch(CompletionException e) {
+			//Forget the failed load, so the next call tries again
+			resourceMap.remove(path, future);
+			if(e.getCause() instanceof RuntimeException cause) throw cause;
+			throw e;
+		}
+	}
+	
+	/**
+	 * Comienza a cargar las imagenes pasadas en paralelo, en un {@link ForkJoinPool} propio, y retorna sin 
+	 * esperar. Las imagenes ya cargadas o que se estan cargando no se vuelven a cargar.
+	 * <p>
+	 * Los errores se lanzan recien al pedir la imagen con loadImage().
+	 * 
+	 * @param filenames los nombres de las imagenes
+	 * @return un {@link CompletableFuture} que se completa cuando todas las imagenes terminan de cargarse
+	 */
+	public CompletableFuture<Void> preloadImages(String... filenames) {
+		CompletableFuture<?>[] loads = new CompletableFuture<?>[filenames.length];
+		for(int i = 0; i < filenames.length; i++) {
+			loads[i] = preloadImage(formatFileName(filenames[i]));
+		}
+		return CompletableFuture.allOf(loads);
+	}
+	
+	/**
+	 * Carga y retorna un {@link Sprite} compartido, a partir de un archivo de imagen dividido segun grillas de 
+	 * dimension especificada. Si el sprite fue cargado previamente con la misma imagen y dimensiones, este 
+	 * retorna el mismo sprite, en lugar de crear otro.
+	 * <p>
+	 * El sprite es compartido por todos los objetos que lo cargan, por lo que su origen no puede ser 
+	 * modificado. Usar GameObject.drawSprite() pasando el origen.
+	 * 
+	 * @param filename El nombre de la imagen.
+	 * @param frameWidth el tamanho horizontal de la grilla
+	 * @param frameHeight el tamanho vertical de la grilla
+	 * @return un objeto {@link Sprite} compartido
+	 */
+	public Sprite loadSprite(String filename, int frameWidth, int frameHeight) {
+		String path = formatFileName(filename);
+		String key = path + "?" + frameWidth + "x" + frameHeight;
+		
+		Sprite cachedSprite = spriteMap.get(key);
+		if(cachedSprite != null) return cachedSprite;
+		
+		//Load the image outside of the map, so no lock is held while reading it
+		BufferedImage image = loadImage(path);
+		return spriteMap.computeIfAbsent(key, k -> {
+			Sprite sprite = new Sprite(image, frameWidth, frameHeight);
+			sprite.setAtlas(atlas);
+			sprite.setShared();
+			return sprite;
+		});
+	}
+	
+	/**
+	 * Carga y retorna un {@link Sprite} compartido de una sola imagen. Ver loadSprite(filename, frameWidth, 
+	 * frameHeight).
+	 * 
+	 * @param filename El nombre de la imagen.
+	 * @return un objeto {@link Sprite} compartido
+	 */
+	public Sprite loadSprite(String filename) {
+		BufferedImage image = loadImage(filename);
+		return loadSprite(filename, image.getWidth(), image.getHeight());
+	}
+	
+	/**
+	 * Precarga las imagenes pasadas en paralelo (ver preloadImages()), y cuando todas terminan las copia a un 
+	 * {@link TextureAtlas}, sin esperar. Desde que es llamado, loadImage() y loadSprite() esperan al atlas y 
+	 * retornan regiones del atlas para dichas imagenes, por lo que debe llamarse antes de cargar los sprites 
+	 * (ej. en GameLoop.onCreate()); los sprites cargados antes siguen usando sus imagenes separadas.
+	 * <p>
+	 * Si alguna imagen no se pudo cargar, no se crea el atlas, y las demas imagenes quedan separadas.
+	 * 
+	 * @param filenames los nombres de las imagenes
+	 * @return un {@link CompletableFuture} que se completa cuando el atlas esta creado, o falla si alguna imagen 
+	 * fallo
+	 */
+	public CompletableFuture<Void> buildAtlas(String... filenames) {
+		Map<String, CompletableFuture<BufferedImage>> loads = new LinkedHashMap<>();
+		for(String filename:filenames) {
+			String path = formatFileName(filename);
+			loads.put(path, preloadImage(path));
+		}
+		
+		//Built by the last load to finish
+		CompletableFuture<TextureAtlas> atlasFuture = CompletableFuture
+				.allOf(loads.values().toArray(new CompletableFuture<?>[0]))
+				.thenApply(ignored -> {
+					Map<String, BufferedImage> images = new LinkedHashMap<>();
+					loads.forEach((path, load) -> images.put(path, load.join()));
+					
+					TextureAtlas newAtlas = new TextureAtlas(images, this);
+					this.atlas = newAtlas;
+					return newAtlas;
+				});
+		
+		//The images become regions of the atlas, or stay separate if it failed
+		loads.forEach((path, load) -> resourceMap.put(path, atlasFuture.handle(
+				(newAtlas, e) -> newAtlas != null ? newAtlas.getRegion(path) : load.join())));
+		
+		return atlasFuture.thenAccept(newAtlas -> {});
+	}
+	
+	/**
+	 * Crea una imagen vacia y transparente, con el formato de pixel de la pantalla, de forma que dibujarla 
+	 * no requiera convertir pixeles y Java2D la pueda acelerar. Si el entorno es headless, crea una imagen ARGB.
+	 * <p>
+	 * Pensada para cachear dibujos que no cambian (ej. el fondo de una ventana).
+	 * 
+	 * @param width el ancho de la imagen, en pixeles
+	 * @param height el alto de la imagen, en pixeles
+	 * @return un objeto {@link BufferedImage}
+	 */
+	public BufferedImage createCompatibleImage(int width, int height) {
+		if(GraphicsEnvironment.isHeadless()) 
+			return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
 		
+		return GraphicsEnvironment.getLocalGraphicsEnvironment()
+				.getDefaultScreenDevice()
+				.getDefaultConfiguration()
+				.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+	}
+	
+	/**
+	 * Retorna el ultimo {@link TextureAtlas} creado con buildAtlas().
+	 * 
+	 * @return el atlas, o null si no se creo ninguno
+	 */
+	TextureAtlas getAtlas() {
+		return atlas;
+	}
+	
+	//PRIVATE METHODS
+	/**
+	 * Comienza a cargar una imagen en el pool de carga, si es que no esta cargada ni cargandose. Dentro del mapa 
+	 * solo se encola la carga, y la imagen se lee fuera de el.
+	 * 
+	 * @param path el nombre del archivo, ya formateado
+	 * @return la carga de la imagen
+	 */
+	private CompletableFuture<BufferedImage> preloadImage(String path) {
+		return resourceMap.computeIfAbsent(path, 
+				key -> CompletableFuture.supplyAsync(() -> readImage(key), getLoadPool()));
+	}
+	
+	private synchronized ForkJoinPool getLoadPool() {
+		if(loadPool == null) loadPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		return loadPool;
+	}
+	
+	/**
+	 * Lee un archivo de imagen y lo convierte en una imagen compatible.
+	 * 
+	 * @param path el nombre del archivo, ya formateado
+	 * 
+	 * @return un objeto {@link BufferedImage}
+	 */
+	private BufferedImage readImage(String path) {
+		BufferedImage image;
 		try {
-			//FIND, LOAD AND RETURN THE RESOURCE
+			//FIND AND LOAD THE RESOURCE
 			URL urlpath = getResourceURL(path);
-			BufferedImage image = ImageIO.read(urlpath);
-			resourceMap.put(path, image);
-			return image;
+			image = ImageIO.read(urlpath);
 		} catch (IOException e) {
 			throw new RuntimeException(String.format("Could not load the resource '%s'.", path));
 		}
+		if(image == null)
+			throw new RuntimeException(String.format("The resource '%s' is not a valid image.", path));
+		
+		//CONVERT IT TO THE SCREEN FORMAT
+		BufferedImage compatibleImage = createCompatibleImage(image.getWidth(), image.getHeight());
+		Graphics2D g = compatibleImage.createGraphics();
+		try {
+			g.drawImage(image, 0, 0, null);
+		}finally {
+			g.dispose();
+		}
+		return compatibleImage;
 	}
 	
 	/**
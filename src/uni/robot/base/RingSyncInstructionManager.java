@@ -0,0 +1,246 @@
+package uni.robot.base;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Implementacion de {@link SyncInstructionManager} basada en un buffer circular prealocado, sin locks.
+ * <p>
+ * Cada hilo productor reserva una posicion del buffer con un numero de ticket, escribe su mensaje y espera
+ * (primero girando y luego con LockSupport.park()) hasta que el hilo consumidor responda. Mandar un mensaje
+ * individual no aloca ningun objeto.
+ * <p>
+ * Los mensajes asincronos no tienen un productor esperando, por lo que el consumidor completa el future y 
+ * libera la posicion el mismo. Mandar un mensaje asincrono solo bloquea si el buffer esta lleno.
+ * <p>
+ * Las posiciones se crean la primera vez que se usan, por lo que un buffer sin usar (ej. el de un robot que 
+ * nunca recibio instrucciones) casi no ocupa memoria.
+ * <p>
+ * El estado de cada posicion se codifica en su secuencia, para el ticket t:<p>
+ * 	- t: libre, el productor del ticket t puede escribir.<p>
+ * 	- t+1: publicado, el consumidor puede leer.<p>
+ * 	- t+2: respondido, el productor puede leer la respuesta y liberar la posicion con t+CAPACITY.<p>
+ * 
+ * @author Fabio Kita
+ * 
+ */
+class RingSyncInstructionManager extends SyncInstructionManager {
+	//Must be a power of 2. Synchronous producers use one slot each, more only queue asynchronous messages
+	private static final int CAPACITY = 16;
+	private static final int MASK = CAPACITY - 1;
+	
+	//Spinning only helps when the consumer can run at the same time
+	private static final int SPIN_COUNT = Runtime.getRuntime().availableProcessors() > 1 ? 256 : 0;
+	private static final long FULL_PARK_NANOS = 50_000;
+	
+	//Created on first use, null while unused
+	private final AtomicReferenceArray<Slot> slots;
+	private final AtomicLong tail;
+	
+	//Only accessed by the consumer thread
+	private long head;
+	
+	public RingSyncInstructionManager() {
+		this.slots = new AtomicReferenceArray<>(CAPACITY);
+		this.tail = new AtomicLong();
+		this.head = 0;
+	}
+	
+	//Producer Methods
+	@Override
+	public Object sendInstruction(Object message) {
+		if(message == null)
+			throw new IllegalArgumentException("The message cannot be null.");
+		
+		long ticket = tail.getAndIncrement();
+		Slot slot = getSlot(ticket);
+		waitForFreeSlot(slot, ticket);
+		
+		slot.message = message;
+		slot.waiter = Thread.currentThread();
+		slot.sequence = ticket + 1;
+		
+		waitForResponse(slot, ticket);
+		Object response = slot.response;
+		slot.release(ticket);
+		return response;
+	}
+	
+	@Override
+	public Object[] sendInstructions(Object[] messages) {
+		if(messages == null || messages.length == 0)
+			throw new IllegalArgumentException("The message batch cannot be null or empty.");
+		for(Object message:messages) {
+			if(message == null)
+				throw new IllegalArgumentException("The message cannot be null.");
+		}
+		
+		long ticket = tail.getAndIncrement();
+		Slot slot = getSlot(ticket);
+		waitForFreeSlot(slot, ticket);
+		
+		slot.batch = messages.clone();
+		slot.batchResponses = new Object[messages.length];
+		slot.batchIndex = 0;
+		slot.message = slot.batch[0];
+		slot.waiter = Thread.currentThread();
+		slot.sequence = ticket + 1;
+		
+		waitForResponse(slot, ticket);
+		Object[] responses = slot.batchResponses;
+		slot.release(ticket);
+		return responses;
+	}
+	
+	@Override
+	public CompletableFuture<Object> sendInstructionAsync(Object message) {
+		if(message == null)
+			throw new IllegalArgumentException("The message cannot be null.");
+		
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		
+		long ticket = tail.getAndIncrement();
+		Slot slot = getSlot(ticket);
+		waitForFreeSlot(slot, ticket);
+		
+		slot.message = message;
+		slot.future = future;
+		slot.sequence = ticket + 1;
+		
+		return future;
+	}
+	
+	//Consumer Methods
+	@Override
+	public Object readInstruction() {
+		Slot slot = slots.get((int) (head & MASK));
+		if(slot == null || slot.sequence != head + 1) return null;
+		return slot.message;
+	}
+	
+	@Override
+	public void finishInstruction(Object message) {
+		Slot slot = slots.get((int) (head & MASK));
+		if(slot == null || slot.sequence != head + 1) throw new RuntimeException("There's no current instruction.");
+		
+		//Advance inside the batch until its last message
+		if(slot.batch != null) {
+			slot.batchResponses[slot.batchIndex++] = message;
+			if(slot.batchIndex < slot.batch.length) {
+				slot.message = slot.batch[slot.batchIndex];
+				return;
+			}
+		}else {
+			slot.response = message;
+		}
+		
+		//Nobody waits for asynchronous messages, so release the slot here
+		if(slot.future != null) {
+			CompletableFuture<Object> future = slot.future;
+			slot.release(head);
+			head++;
+			future.complete(message);
+			return;
+		}
+		
+		Thread waiter = slot.waiter;
+		slot.sequence = head + 2;
+		head++;
+		LockSupport.unpark(waiter);
+	}
+	
+	//PRIVATE METHODS
+	/**
+	 * Retorna la posicion del buffer del ticket, creandola si es la primera vez que se usa. Una posicion 
+	 * nueva siempre comienza libre para el ticket de la primera vuelta, que es el primero en usarla.
+	 * 
+	 * @param ticket el ticket del productor
+	 * @return la posicion del buffer
+	 */
+	private Slot getSlot(long ticket) {
+		int index = (int) (ticket & MASK);
+		Slot slot = slots.get(index);
+		if(slot != null) return slot;
+		
+		slots.compareAndSet(index, null, new Slot(index));
+		return slots.get(index);
+	}
+	
+	/**
+	 * Espera hasta que la posicion este libre para el ticket especificado. Solo ocurre si el buffer esta lleno.
+	 * 
+	 * @param slot la posicion del buffer
+	 * @param ticket el ticket del productor
+	 */
+	private void waitForFreeSlot(Slot slot, long ticket) {
+		for(int i = 0; slot.sequence != ticket; i++) {
+			if(i < SPIN_COUNT) Thread.onSpinWait();
+			else LockSupport.parkNanos(this, FULL_PARK_NANOS);
+		}
+	}
+	
+	/**
+	 * Espera, girando y luego pausando el hilo, hasta que el consumidor responda el mensaje del ticket.
+	 * 
+	 * @param slot la posicion del buffer
+	 * @param ticket el ticket del productor
+	 */
+	private void waitForResponse(Slot slot, long ticket) {
+		long answered = ticket + 2;
+		
+		for(int i = 0; i < SPIN_COUNT; i++) {
+			if(slot.sequence == answered) return;
+			Thread.onSpinWait();
+		}
+		
+		//Interrupts are ignored like in the other implementation, but the flag is restored at the end
+		boolean interrupted = false;
+		while(slot.sequence != answered) {
+			LockSupport.park(this);
+			if(Thread.interrupted()) interrupted = true;
+		}
+		if(interrupted) Thread.currentThread().interrupt();
+	}
+	
+	//PRIVATE CLASSES
+	/**
+	 * Una posicion del buffer circular.
+	 * 
+	 * @author Fabio Kita
+	 */
+	private static class Slot{
+		private volatile long sequence;
+		
+		private Object message;
+		private Object response;
+		private Thread waiter;
+		private CompletableFuture<Object> future;
+		
+		//Only used when the instruction is a batch of messages
+		private Object[] batch;
+		private Object[] batchResponses;
+		private int batchIndex;
+		
+		public Slot(long initialSequence) {
+			this.sequence = initialSequence;
+		}
+		
+		/**
+		 * Limpia la posicion y la libera para el ticket de la siguiente vuelta.
+		 * 
+		 * @param ticket el ticket actual
+		 */
+		public void release(long ticket) {
+			message = null;
+			response = null;
+			waiter = null;
+			future = null;
+			batch = null;
+			batchResponses = null;
+			batchIndex = 0;
+			sequence = ticket + CAPACITY;
+		}
+	}
+}
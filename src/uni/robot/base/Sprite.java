@@ -1,19 +1,43 @@
 package uni.robot.base;
 
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Objeto que representa un Sprite, es decir, un conjunto de imagenes indexadas que representa una 
  * animacion por cuadra.
+ * <p>
+ * Los sprites conseguidos con ResourceManager.loadSprite() son compartidos por todos los objetos, por lo que 
+ * su origen no puede ser modificado; en su lugar, se pasa el origen al dibujarlos con 
+ * GameObject.drawSprite().
+ * <p>
+ * Ademas, guarda copias de sus frames ya escaladas por cada escala entera usada (ver getScaledFrame()), de 
+ * forma que dibujar un sprite escalado no escale la imagen en cada repintada. Si el sprite es parte de un 
+ * {@link TextureAtlas}, sus frames escalados son regiones de la hoja escalada del atlas.
  * 
  * @author Fabio Kita
  *
  */
 public class Sprite {
+	//Bigger scales are scaled while painting instead, also used by TextureAtlas for its scaled sheets
+	static final int MAX_CACHED_SCALE = 8;
+	
 	private BufferedImage[] frames;
 	private int originX = 0;
 	private int originY = 0;
 	
+	//Shared sprites can't be modified
+	private boolean shared = false;
+	
+	//Atlas containing the frames, null if they are separate images
+	private TextureAtlas atlas = null;
+	
+	//Frames already scaled, indexed by scale and created the first time each scale is used
+	private final AtomicReferenceArray<BufferedImage[]> scaledFrames = 
+			new AtomicReferenceArray<>(MAX_CACHED_SCALE + 1);
+	
 	/**
 	 * Crea un sprite con la lista de imagenes pasadas.
 	 * 
@@ -98,6 +122,34 @@ public class Sprite {
 		return this.frames[frameIndex];
 	}
 	
+	/**
+	 * Retorna la imagen con el indice especificado, escalada por un factor entero. Todos los frames se escalan 
+	 * la primera vez que se pide la escala, y luego se reutilizan.
+	 * <p>
+	 * El escalado es por vecino mas cercano, igual al que hace Java2D al dibujar una imagen escalada, por lo 
+	 * que dibujar el frame escalado da los mismos pixeles.
+	 * 
+	 * @param frameIndex el indice de la imagen
+	 * @param scale la escala, mayor a 0
+	 * @return la imagen escalada, o null si la escala es demasiado grande para guardarla
+	 */
+	public BufferedImage getScaledFrame(int frameIndex, int scale) {
+		if(scale == 1) return getFrame(frameIndex);
+		if(scale < 1 || scale > MAX_CACHED_SCALE) return null;
+		
+		BufferedImage[] scaled = scaledFrames.get(scale);
+		if(scaled == null) {
+			//Two threads may scale at the same time, both results are equal
+			scaled = new BufferedImage[frames.length];
+			for(int i = 0; i < frames.length; i++) {
+				BufferedImage frame = atlas == null ? null : atlas.getScaledRegion(frames[i], scale);
+				scaled[i] = frame != null ? frame : scaleImage(frames[i], scale);
+			}
+			if(!scaledFrames.compareAndSet(scale, null, scaled)) scaled = scaledFrames.get(scale);
+		}
+		return scaled[frameIndex];
+	}
+	
 	/**
 	 * Setea el origen del sprite, es decir, el punto del sprite que se considerara como la posicion del
 	 * sprite, a la hora de ser dibujado por un {@link GameObject} con el metodo drawSprite().
@@ -106,6 +158,9 @@ public class Sprite {
 	 * @param y la posicion y del punto origen, en pixeles
 	 */
 	public void setOrigin(int x, int y) {
+		if(shared) 
+			throw new RuntimeException("No se puede modificar un sprite compartido, pasar el origen a drawSprite().");
+		
 		this.originX = x;
 		this.originY = y;
 	}
@@ -145,6 +200,31 @@ public class Sprite {
 		return this.getFrame(0).getWidth();
 	}
 	
+	/**
+	 * Retorna si el sprite es compartido, es decir, si fue conseguido con ResourceManager.loadSprite().
+	 * 
+	 * @return si el sprite es compartido
+	 */
+	public boolean isShared() {
+		return shared;
+	}
+	
+	/**
+	 * Marca el sprite como compartido, impidiendo que sea modificado.
+	 */
+	void setShared() {
+		this.shared = true;
+	}
+	
+	/**
+	 * Setea el {@link TextureAtlas} que contiene los frames del sprite. Llamado antes de compartir el sprite.
+	 * 
+	 * @param atlas el atlas
+	 */
+	void setAtlas(TextureAtlas atlas) {
+		this.atlas = atlas;
+	}
+	
 	/**
 	 * Consigue el alto del sprite.  Si las sub-imagenes tiene diferente tamanho, utiliza como
 	 * referencia la primera sub-imagen.
@@ -153,4 +233,32 @@ public class Sprite {
 	public int getHeight() {
 		return this.getFrame(0).getHeight();
 	}
+	
+	//STATIC METHODS
+	/**
+	 * Crea una copia de la imagen escalada, con el mismo formato de pixel que la imagen original.
+	 * 
+	 * @param image la imagen original
+	 * @param scale la escala
+	 * @return la imagen escalada
+	 */
+	static BufferedImage scaleImage(BufferedImage image, int scale) {
+		int width = image.getWidth()*scale;
+		int height = image.getHeight()*scale;
+		BufferedImage scaled = new BufferedImage(
+				image.getColorModel(), 
+				image.getRaster().createCompatibleWritableRaster(width, height), 
+				image.isAlphaPremultiplied(), 
+				null
+			);
+		
+		Graphics2D g = scaled.createGraphics();
+		try {
+			g.setComposite(AlphaComposite.Src);
+			g.drawImage(image, 0, 0, width, height, null);
+		}finally {
+			g.dispose();
+		}
+		return scaled;
+	}
 }
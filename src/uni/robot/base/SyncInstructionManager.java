@@ -1,23 +1,23 @@
 package uni.robot.base;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Objeto que es capaz de sincronizar el paso de mensajes de hilos, uno o mas productores y un consumidor.
  * 
- * Cuando un hilo productor manda un mensaje a traves de este objeto, el mensaje es agregado a una fila y el hilo
- * es pausado, hasta que el hilo consumidor procese y mande una respuesta.
+ * Cuando un hilo productor manda un mensaje a traves de este objeto, el hilo es pausado, hasta que el hilo
+ * consumidor procese y mande una respuesta.
+ * <p>
+ * Las instancias se crean con el metodo create(), que usa la implementacion seteada con setImplementation().
  * 
  * @author Fabio Kita
  *
  */
-public class SyncInstructionManager {
-	private Queue<SyncInstruction> instructionQueue;
+public abstract class SyncInstructionManager {
+	public static final int QUEUE = 0;
+	public static final int RING_BUFFER = 1;
 	
-	public SyncInstructionManager() {
-		this.instructionQueue = new ConcurrentLinkedQueue<>();
-	}
+	private static int implementation = QUEUE;
 	
 	//Producer Methods
 	/**
@@ -28,11 +28,32 @@ public class SyncInstructionManager {
 	 * @param message El mensaje a mandar
 	 * @return La respuesta del hilo consumidor
 	 */
-	public Object sendInstruction(Object message) {
-		SyncInstruction instruction = new SyncInstruction(message);
-		instructionQueue.add(instruction);
-		return instruction.waitInstruction();
-	}
+	public abstract Object sendInstruction(Object message);
+	
+	/**
+	 * Metodo exclusivo para el hilo productor. Pone un lote de mensajes en la fila, como una sola entrada, y
+	 * bloquea una sola vez hasta que el hilo consumidor responda todos los mensajes del lote.<p>
+	 * El hilo consumidor lee y termina los mensajes del lote uno por uno, en orden, de la misma forma que
+	 * mensajes individuales.<p>
+	 * El arreglo no puede ser null, vacio, ni contener mensajes null.
+	 * 
+	 * @param messages Los mensajes a mandar
+	 * @return Las respuestas del hilo consumidor, en el mismo orden que los mensajes
+	 */
+	public abstract Object[] sendInstructions(Object[] messages);
+	
+	/**
+	 * Metodo exclusivo para el hilo productor. Pone un mensaje en la fila sin bloquear, y retorna un 
+	 * {@link CompletableFuture} que se completa con la respuesta del hilo consumidor.<p>
+	 * El future se completa dentro del hilo consumidor, por lo que no se recomienda encadenar acciones 
+	 * sincronas que tarden o bloqueen; usar los metodos *Async de {@link CompletableFuture}.<p>
+	 * Los mensajes se procesan en el mismo orden en que se mandan, sean sincronos o no.<p>
+	 * El mensaje no puede ser null.
+	 * 
+	 * @param message El mensaje a mandar
+	 * @return Un future con la respuesta del hilo consumidor
+	 */
+	public abstract CompletableFuture<Object> sendInstructionAsync(Object message);
 	
 	//Consumer Methods
 	/**
@@ -40,62 +61,48 @@ public class SyncInstructionManager {
 	 * 
 	 * @return El primer mensaje de la fila,
 	 */
-	public Object readInstruction() {
-		SyncInstruction instruction = instructionQueue.peek();
-		if(instruction == null) return null;
-		return instruction.getInstruction();
-	}
+	public abstract Object readInstruction();
 	
 	/**
-	 * Marca como teminado y remueve el primer mensaje de la fila, desbloqueando el hilo consumidor y 
+	 * Marca como teminado y remueve el primer mensaje de la fila, desbloqueando el hilo consumidor y
 	 * mandando una respuesta.
+	 * <p>
+	 * Si el mensaje forma parte de un lote, solo se remueve de la fila (y se desbloquea el hilo productor)
+	 * cuando se termina el ultimo mensaje del lote.
 	 * 
 	 * @param message la respuesta a mandar
 	 */
-	public void finishInstruction(Object message) {
-		SyncInstruction instruction = instructionQueue.poll();
-		if(instruction == null) throw new RuntimeException("There's no current instruction.");
-		instruction.markAsDone(message);
-	}
+	public abstract void finishInstruction(Object message);
 	
 	/**
-	 * Marca como teminado y remueve el primer mensaje de la fila, desbloqueando el hilo consumidor y 
+	 * Marca como teminado y remueve el primer mensaje de la fila, desbloqueando el hilo consumidor y
 	 * mandando una respuesta.
 	 */
 	public void finishInstruction() {
 		this.finishInstruction(null);
 	}
-}
-
-class SyncInstruction{
-	private boolean done;
-	private Object message;
-	private Object response;
-	
-	public SyncInstruction(Object message) {
-		if(message == null) 
-			throw new IllegalArgumentException("The message cannot be null.");
-		
-		this.done = false;
-		this.message = message;
-		this.response = null;
-	}
 	
-	public Object getInstruction() {
-		return message;
-	}
-	
-	public synchronized Object waitInstruction(){
-		try {
-			while(!done) wait();
-		}catch (InterruptedException e) {}
-		
-		return response;
+	//STATIC METHODS
+	/**
+	 * Crea un nuevo SyncInstructionManager, segun la implementacion actual.
+	 * 
+	 * @return un nuevo SyncInstructionManager
+	 */
+	public static SyncInstructionManager create() {
+		switch(implementation) {
+			case RING_BUFFER: return new RingSyncInstructionManager();
+			default: return new QueueSyncInstructionManager();
+		}
 	}
 	
-	public synchronized void markAsDone(Object response) {
-		this.response = response;
-		this.done = true;
-		notify();
+	/**
+	 * Setea la implementacion usada por el metodo create(). Solo afecta a los objetos creados posteriormente.
+	 * 
+	 * @param implementation QUEUE o RING_BUFFER
+	 */
+	public static void setImplementation(int implementation) {
+		if(implementation != QUEUE && implementation != RING_BUFFER)
+			throw new IllegalArgumentException("Invalid SyncInstructionManager implementation.");
+		SyncInstructionManager.implementation = implementation;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,177 @@
+package uni.robot.base;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Atlas de texturas, es decir, una sola imagen (hoja) que contiene varias imagenes chicas, usado por
+ * {@link ResourceManager}.
+ * <p>
+ * Las imagenes se acomodan en estantes: se ordenan de mayor a menor alto, y se colocan de izquierda a derecha
+ * hasta llenar el ancho de la hoja, para luego comenzar un estante nuevo debajo. Cada imagen del atlas es una
+ * region de la hoja (ver BufferedImage.getSubimage()), por lo que dibujar varias imagenes del atlas solo usa
+ * una imagen de origen, que Java2D puede mantener acelerada como una sola textura.
+ * <p>
+ * Ademas, crea copias de la hoja escaladas por escalas enteras, de las cuales salen los frames escalados de
+ * los {@link Sprite} del atlas (ver Sprite.getScaledFrame()).
+ * <p>
+ * Nunca cambia luego de creado, salvo las hojas escaladas, que se crean de forma atomica.
+ * 
+ * @author Fabio Kita
+ * 
+ */
+class TextureAtlas {
+	//The sheet is at least this wide, so small images share shelves
+	private static final int MIN_SHEET_WIDTH = 256;
+	
+	private final BufferedImage sheet;
+	private final Map<String, BufferedImage> regions;
+	
+	//Scaled copies of the sheet, indexed by scale and created the first time each scale is used
+	private final AtomicReferenceArray<BufferedImage> scaledSheets;
+	
+	/**
+	 * Crea el atlas, copiando todas las imagenes pasadas dentro de una hoja nueva.
+	 * 
+	 * @param images las imagenes, segun su nombre de archivo
+	 * @param resourceManager el {@link ResourceManager} con el que se crea la hoja
+	 */
+	public TextureAtlas(Map<String, BufferedImage> images, ResourceManager resourceManager) {
+		//Tallest first, so each shelf wastes little height
+		List<String> paths = new ArrayList<>(images.keySet());
+		paths.sort(Comparator.<String>comparingInt(path -> images.get(path).getHeight()).reversed()
+				.thenComparing(Comparator.naturalOrder()));
+		
+		//Width of a square sheet, rounded up to a power of 2
+		long area = 0;
+		int maxWidth = 0;
+		for(BufferedImage image:images.values()) {
+			area += (long) image.getWidth()*image.getHeight();
+			maxWidth = Math.max(maxWidth, image.getWidth());
+		}
+		int width = Math.max(MIN_SHEET_WIDTH, maxWidth);
+		while((long) width*width < area) width *= 2;
+		
+		//Place the images shelf by shelf
+		Map<String, int[]> positions = new HashMap<>();
+		int x = 0;
+		int y = 0;
+		int shelfHeight = 0;
+		for(String path:paths) {
+			BufferedImage image = images.get(path);
+			if(x + image.getWidth() > width) {
+				x = 0;
+				y += shelfHeight;
+				shelfHeight = 0;
+			}
+			
+			positions.put(path, new int[] {x, y});
+			x += image.getWidth();
+			shelfHeight = Math.max(shelfHeight, image.getHeight());
+		}
+		int height = Math.max(1, y + shelfHeight);
+		
+		//Copy the images into the sheet
+		this.sheet = resourceManager.createCompatibleImage(width, height);
+		this.regions = new HashMap<>();
+		
+		Graphics2D g = sheet.createGraphics();
+		try {
+			g.setComposite(AlphaComposite.Src);
+			for(String path:paths) {
+				BufferedImage image = images.get(path);
+				int[] position = positions.get(path);
+				g.drawImage(image, position[0], position[1], null);
+				regions.put(path, sheet.getSubimage(position[0], position[1], image.getWidth(), image.getHeight()));
+			}
+		}finally {
+			g.dispose();
+		}
+		
+		this.scaledSheets = new AtomicReferenceArray<>(Sprite.MAX_CACHED_SCALE + 1);
+	}
+	
+	/**
+	 * Retorna la region de la hoja que contiene la imagen con el nombre de archivo pasado.
+	 * 
+	 * @param path el nombre de archivo, ya formateado
+	 * @return la region, o null si la imagen no esta en el atlas
+	 */
+	public BufferedImage getRegion(String path) {
+		return regions.get(path);
+	}
+	
+	/**
+	 * Retorna la hoja, escalada o no, de la cual la imagen pasada es una region.
+	 * 
+	 * @param image una imagen, que puede ser una region del atlas
+	 * @return la hoja, o null si la imagen no es parte del atlas
+	 */
+	public BufferedImage getSheet(BufferedImage image) {
+		DataBuffer buffer = image.getRaster().getDataBuffer();
+		if(buffer == sheet.getRaster().getDataBuffer()) return sheet;
+		
+		for(int scale = 2; scale <= Sprite.MAX_CACHED_SCALE; scale++) {
+			BufferedImage scaledSheet = scaledSheets.get(scale);
+			if(scaledSheet != null && buffer == scaledSheet.getRaster().getDataBuffer()) return scaledSheet;
+		}
+		return null;
+	}
+	
+	/**
+	 * Retorna la region pasada escalada por un factor entero, como una region de la hoja escalada. La hoja se
+	 * escala la primera vez que se pide la escala.
+	 * 
+	 * @param region una region del atlas, sin escalar
+	 * @param scale la escala
+	 * @return la region escalada, o null si la escala es demasiado grande o la imagen no es parte del atlas
+	 */
+	public BufferedImage getScaledRegion(BufferedImage region, int scale) {
+		if(scale < 1 || scale > Sprite.MAX_CACHED_SCALE) return null;
+		if(getSheet(region) != sheet) return null;
+		if(scale == 1) return region;
+		
+		BufferedImage scaledSheet = scaledSheets.get(scale);
+		if(scaledSheet == null) {
+			//Two threads may scale at the same time, both results are equal
+			scaledSheet = Sprite.scaleImage(sheet, scale);
+			if(!scaledSheets.compareAndSet(scale, null, scaledSheet)) scaledSheet = scaledSheets.get(scale);
+		}
+		
+		return scaledSheet.getSubimage(
+				getRegionX(region)*scale,
+				getRegionY(region)*scale,
+				region.getWidth()*scale,
+				region.getHeight()*scale
+			);
+	}
+	
+	//STATIC METHODS
+	/**
+	 * Retorna la posicion x de una region dentro de su hoja.
+	 * 
+	 * @param region una region, conseguida con getSubimage() de una hoja
+	 * @return la posicion x, en pixeles
+	 */
+	public static int getRegionX(BufferedImage region) {
+		return -region.getRaster().getSampleModelTranslateX();
+	}
+	
+	/**
+	 * Retorna la posicion y de una region dentro de su hoja.
+	 * 
+	 * @param region una region, conseguida con getSubimage() de una hoja
+	 * @return la posicion y, en pixeles
+	 */
+	public static int getRegionY(BufferedImage region) {
+		return -region.getRaster().getSampleModelTranslateY();
+	}
+}
@@ -1,19 +1,32 @@
 package uni.robot.base;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Objeto que compone a {@link GameLoop}, responsable de almacenar y manejar ventanas.
+ * <p>
+ * La lista de ventanas es recorrida tanto por el hilo de simulacion como por el hilo de dibujo.
+ * <p>
+ * Las ventanas son independientes entre si, por lo que el ciclo Update puede repartirlas entre varios 
+ * nucleos con updateWindowsInParallel().
  * 
  * @author Fabio Kita
  *
  */
 class WindowManager {
+	//Windows updated by a single task, below this the task stops splitting
+	private static final int WINDOWS_PER_TASK = 1;
+	
 	private List<GameWindow> windowList;
 	
+	//Created on the first parallel update
+	private ForkJoinPool updatePool;
+	
 	public WindowManager() {
-		this.windowList = new ArrayList<>();
+		this.windowList = new CopyOnWriteArrayList<>();
 	}
 	
 	/**
@@ -44,6 +57,36 @@ class WindowManager {
 		}
 	}
 	
+	/**
+	 * Ejecuta el metodo update() de todos los {@link GameWindow}, repartiendo las ventanas entre los hilos de 
+	 * un {@link ForkJoinPool}. Retorna recien cuando todas las ventanas terminaron, por lo que sirve como 
+	 * barrera antes de capturar los estados de dibujo.
+	 * <p>
+	 * Si hay una sola ventana o un solo nucleo, es lo mismo que updateWindows().
+	 */
+	public void updateWindowsInParallel() {
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		if(windowList.size() <= WINDOWS_PER_TASK || parallelism < 2) {
+			this.updateWindows();
+			return;
+		}
+		
+		//Its own pool, so robot programs blocking the common pool never stall the Update cycle
+		if(updatePool == null) updatePool = new ForkJoinPool(parallelism);
+		
+		GameWindow[] windows = windowList.toArray(new GameWindow[0]);
+		updatePool.invoke(new UpdateTask(windows, 0, windows.length));
+	}
+	
+	/**
+	 * Ejecuta el metodo captureDraw() de todos los {@link GameWindow}
+	 */
+	public void captureWindows() {
+		for(GameWindow window:windowList) {
+			window.captureDraw();
+		}
+	}
+	
 	/**
 	 * Ejecuta el metodo draw() de todos los {@link GameWindow}
 	 */
@@ -52,4 +95,38 @@ class WindowManager {
 			window.draw();
 		}
 	}
+	
+	//PRIVATE CLASSES
+	/**
+	 * Tarea que actualiza un rango de ventanas, dividiendolo en dos mitades mientras tenga mas de 
+	 * WINDOWS_PER_TASK ventanas.
+	 * 
+	 * @author Fabio Kita
+	 */
+	private static class UpdateTask extends RecursiveAction{
+		private static final long serialVersionUID = 1L;
+		
+		private final GameWindow[] windows;
+		private final int start;
+		private final int end;
+		
+		public UpdateTask(GameWindow[] windows, int start, int end) {
+			this.windows = windows;
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		protected void compute() {
+			if(end - start <= WINDOWS_PER_TASK) {
+				for(int i = start; i < end; i++) {
+					windows[i].update();
+				}
+				return;
+			}
+			
+			int middle = (start + end) >>> 1;
+			invokeAll(new UpdateTask(windows, start, middle), new UpdateTask(windows, middle, end));
+		}
+	}
 }
@@ -1,8 +1,5 @@
 package uni.robot.game;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
 import uni.robot.base.Sprite;
 
 /**
@@ -16,6 +13,7 @@ public class ConeObject extends GridObject {
 	private static final String CONE_IMAGE_PATH = RobotLoop.ASSETS_PATH + "ConeSprite.png";
 	private static final int CONE_BASE_OFFSET = 8;
 	private static final int CONE_STACK_OFFSET = -4;
+	private static final int SPRITE_BOTTOM_OFFSET = 6;
 	
 	transient private Sprite sprite;
 	private int coneIndex;
@@ -26,14 +24,14 @@ public class ConeObject extends GridObject {
 	
 	@Override
 	public void onCreate() {
-		sprite = new Sprite(getResourceManager().loadImage(CONE_IMAGE_PATH));
-		sprite.setOrigin(sprite.getWidth()/2, sprite.getHeight()-6);
-		
-		//get Index
-		coneIndex = getConeIndex();
+		//Every cone shares the same sprite
+		sprite = getResourceManager().loadSprite(CONE_IMAGE_PATH);
 		
 		//Calculate z index
 		setZIndex(getRowY()+CONE_BASE_OFFSET+coneIndex);
+		
+		//Cones never change by themselves
+		setSleeping(true);
 	}
 	
 	@Override
@@ -42,7 +40,8 @@ public class ConeObject extends GridObject {
 	@Override
 	public void onDraw() {
 		final int SCALE = 2;
-		drawSprite(sprite, 0, getColumnX(), getYPosition(), SCALE, SCALE);
+		drawSprite(sprite, 0, getColumnX(), getYPosition(), 
+				sprite.getWidth()/2, sprite.getHeight()-SPRITE_BOTTOM_OFFSET, SCALE, SCALE);
 	}
 
 	@Override
@@ -59,19 +58,14 @@ public class ConeObject extends GridObject {
 	}
 
 	/**
-	 * Retorna el indice de este cono dentro de los conos en la misma posicion.
+	 * Setea el indice de este cono dentro de los conos en la misma posicion.
 	 * Principalmente para calcular su posicion en y.
+	 * <p>
+	 * Usado por {@link World} al agregar el cono.
 	 * 
-	 * @return Indice de este cono
+	 * @param coneIndex Indice de este cono
 	 */
-	private int getConeIndex() {
-		List<ConeObject> cones = this.getWorld().getObjectsInPosition(getRow(), getColumn()).stream()
-				.filter(o->o instanceof ConeObject)
-				.map(c->(ConeObject) c)
-				.collect(Collectors.toList());
-		
-		int index = cones.indexOf(this);
-		if(index == -1) return cones.size();
-		else return index;
+	void setConeIndex(int coneIndex) {
+		this.coneIndex = coneIndex;
 	}
 }
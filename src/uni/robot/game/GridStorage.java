@@ -0,0 +1,94 @@
+package uni.robot.game;
+
+/**
+ * Almacenamiento del estado primitivo de un bloque de celdas de un {@link WorldMap}, es decir, la mascara de 
+ * paredes, la cantidad de conos y si la celda esta ocupada.
+ * <p>
+ * Las instancias se crean con el metodo create(), que usa la implementacion seteada con setImplementation():<p>
+ * 	- HEAP: arreglos de Java.<p>
+ * 	- OFF_HEAP: un {@link java.nio.ByteBuffer} directo, fuera del heap, que no agrega presion al recolector de 
+ * 	  basura en mundos muy grandes.<p>
+ * 
+ * @author Fabio Kita
+ * 
+ */
+public abstract class GridStorage {
+	public static final int HEAP = 0;
+	public static final int OFF_HEAP = 1;
+	
+	private static int implementation = HEAP;
+	
+	/**
+	 * Retorna la mascara de paredes de una celda, con un bit por direccion (1 &lt;&lt; direccion).
+	 * 
+	 * @param index el indice de la celda
+	 * @return la mascara de paredes
+	 */
+	abstract byte getWallMask(int index);
+	
+	/**
+	 * Setea la mascara de paredes de una celda.
+	 * 
+	 * @param index el indice de la celda
+	 * @param mask la nueva mascara
+	 */
+	abstract void setWallMask(int index, byte mask);
+	
+	/**
+	 * Retorna la cantidad de conos de una celda.
+	 * 
+	 * @param index el indice de la celda
+	 * @return la cantidad de conos
+	 */
+	abstract int getConeCount(int index);
+	
+	/**
+	 * Setea la cantidad de conos de una celda.
+	 * 
+	 * @param index el indice de la celda
+	 * @param count la nueva cantidad
+	 */
+	abstract void setConeCount(int index, int count);
+	
+	/**
+	 * Retorna si la celda tiene algun objeto.
+	 * 
+	 * @param index el indice de la celda
+	 * @return si la celda esta ocupada
+	 */
+	abstract boolean isOccupied(int index);
+	
+	/**
+	 * Setea si la celda tiene algun objeto.
+	 * 
+	 * @param index el indice de la celda
+	 * @param occupied si la celda esta ocupada
+	 */
+	abstract void setOccupied(int index, boolean occupied);
+	
+	//STATIC METHODS
+	/**
+	 * Crea un nuevo GridStorage vacio, segun la implementacion actual.
+	 * 
+	 * @param cellCount la cantidad de celdas
+	 * @return un nuevo GridStorage
+	 */
+	static GridStorage create(int cellCount) {
+		switch(implementation) {
+			case OFF_HEAP: return new OffHeapGridStorage(cellCount);
+			default: return new HeapGridStorage(cellCount);
+		}
+	}
+	
+	/**
+	 * Setea la implementacion usada por el metodo create(). Solo afecta a los bloques de celdas creados 
+	 * posteriormente, por lo que debe de llamarse antes de crear cualquier mundo.
+	 * 
+	 * @param implementation HEAP o OFF_HEAP
+	 */
+	public static void setImplementation(int implementation) {
+		if(implementation != HEAP && implementation != OFF_HEAP)
+			throw new IllegalArgumentException("Invalid GridStorage implementation.");
+		GridStorage.implementation = implementation;
+	}
+}
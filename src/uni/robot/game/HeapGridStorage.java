@@ -0,0 +1,49 @@
+package uni.robot.game;
+
+/**
+ * Implementacion de {@link GridStorage} basada en arreglos de Java.
+ * 
+ * @author Fabio Kita
+ * 
+ */
+class HeapGridStorage extends GridStorage {
+	private final byte[] wallMasks;
+	private final int[] coneCounts;
+	private final boolean[] occupied;
+	
+	public HeapGridStorage(int cellCount) {
+		this.wallMasks = new byte[cellCount];
+		this.coneCounts = new int[cellCount];
+		this.occupied = new boolean[cellCount];
+	}
+	
+	@Override
+	byte getWallMask(int index) {
+		return wallMasks[index];
+	}
+	
+	@Override
+	void setWallMask(int index, byte mask) {
+		wallMasks[index] = mask;
+	}
+	
+	@Override
+	int getConeCount(int index) {
+		return coneCounts[index];
+	}
+	
+	@Override
+	void setConeCount(int index, int count) {
+		coneCounts[index] = count;
+	}
+	
+	@Override
+	boolean isOccupied(int index) {
+		return occupied[index];
+	}
+	
+	@Override
+	void setOccupied(int index, boolean occupied) {
+		this.occupied[index] = occupied;
+	}
+}
@@ -0,0 +1,61 @@
+package uni.robot.game;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Implementacion de {@link GridStorage} basada en un {@link ByteBuffer} directo, fuera del heap.
+ * <p>
+ * Cada celda ocupa CELL_BYTES bytes:<p>
+ * 	- 0 a 3: la cantidad de conos (int).<p>
+ * 	- 4: la mascara de paredes.<p>
+ * 	- 5: si la celda esta ocupada (0 o 1).<p>
+ * 
+ * @author Fabio Kita
+ * 
+ */
+class OffHeapGridStorage extends GridStorage {
+	//Keeps the cone count of every cell aligned
+	private static final int CELL_BYTES = 8;
+	
+	private static final int CONE_COUNT_OFFSET = 0;
+	private static final int WALL_MASK_OFFSET = 4;
+	private static final int OCCUPIED_OFFSET = 5;
+	
+	private final ByteBuffer buffer;
+	
+	public OffHeapGridStorage(int cellCount) {
+		//Direct buffers start zeroed
+		this.buffer = ByteBuffer.allocateDirect(cellCount*CELL_BYTES).order(ByteOrder.nativeOrder());
+	}
+	
+	@Override
+	byte getWallMask(int index) {
+		return buffer.get(index*CELL_BYTES + WALL_MASK_OFFSET);
+	}
+	
+	@Override
+	void setWallMask(int index, byte mask) {
+		buffer.put(index*CELL_BYTES + WALL_MASK_OFFSET, mask);
+	}
+	
+	@Override
+	int getConeCount(int index) {
+		return buffer.getInt(index*CELL_BYTES + CONE_COUNT_OFFSET);
+	}
+	
+	@Override
+	void setConeCount(int index, int count) {
+		buffer.putInt(index*CELL_BYTES + CONE_COUNT_OFFSET, count);
+	}
+	
+	@Override
+	boolean isOccupied(int index) {
+		return buffer.get(index*CELL_BYTES + OCCUPIED_OFFSET) != 0;
+	}
+	
+	@Override
+	void setOccupied(int index, boolean occupied) {
+		buffer.put(index*CELL_BYTES + OCCUPIED_OFFSET, (byte) (occupied ? 1 : 0));
+	}
+}
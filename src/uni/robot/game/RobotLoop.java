@@ -6,6 +6,9 @@ import uni.robot.game.speedpanel.SpeedPanel;
 
 /**
  * Repesenta un ciclo de juego, especifico para el juego robot.
+ * <p>
+ * Cada {@link World} es independiente, por lo que pueden actualizarse en paralelo (ver setParallelUpdate()). El 
+ * valor por defecto lo define RobotGame, segun el archivo de configuracion.
  * 
  * @author Fabio Kita
  *
@@ -15,20 +18,49 @@ public class RobotLoop extends GameLoop{
 	public static final int NORMAL = 1;
 	public static final int FAST_FORWARD = 2;
 	public static final int FAST_FAST_FORWARD = 3;
+	public static final int INSTANT = 4;
+	
+	private static final int PLAY_MODE_COUNT = 5;
 	
 	public static String ASSETS_PATH;
 	
-	private final SyncInstructionManager instructionManager = new SyncInstructionManager();
+	//Every image used by the game, relative to ASSETS_PATH, preloaded in parallel and packed into one texture atlas
+	private static final String[] ASSET_FILES = {
+			"WorldTile.png",
+			"WallSprite.png",
+			"ConeSprite.png",
+			"NumberSprite.png",
+			"robot/walk/RobotWalkN.png",
+			"robot/walk/RobotWalkE.png",
+			"robot/walk/RobotWalkS.png",
+			"robot/walk/RobotWalkW.png",
+			"robot/turn/RobotTurnEN.png",
+			"robot/turn/RobotTurnNW.png",
+			"robot/turn/RobotTurnWS.png",
+			"robot/turn/RobotTurnSE.png",
+			"robot/interact/RobotInteractN.png",
+			"robot/interact/RobotInteractE.png",
+			"robot/interact/RobotInteractS.png",
+			"robot/interact/RobotInteractW.png",
+			"buttons/PlayButton.png",
+			"buttons/PauseButton.png",
+			"buttons/FFButton.png",
+			"buttons/FFFButton.png"
+		};
+	
+	private final SyncInstructionManager instructionManager = SyncInstructionManager.create();
 	private final int[] playModeUpdateCounts;
 	private final boolean showSpeedPanel;
 	
-	private int playMode;
-	private int updateCount;
+	//Read by the windows updating in parallel
+	private volatile int playMode;
+	private volatile int updateCount;
 	
 	public RobotLoop(String rootAssetsPath, boolean showSpeedPanel, int initialPlayMode, 
 			int[] playModeUpdateCounts, int ups, int fps) {
-		if(playModeUpdateCounts.length != 4)
-			throw new IllegalArgumentException("Play mode update counts must be an array of size 4.");
+		if(playModeUpdateCounts.length != PLAY_MODE_COUNT)
+			throw new IllegalArgumentException("Play mode update counts must be an array of size " 
+					+ PLAY_MODE_COUNT + ".");
 		
 		ASSETS_PATH = rootAssetsPath;
 		if(!ASSETS_PATH.endsWith("/")) ASSETS_PATH.concat("/");
@@ -43,16 +75,26 @@ public class RobotLoop extends GameLoop{
 	
 	@Override
 	public void onCreate() {
+		//Start loading the assets in parallel before any sprite is loaded, sprites wait only while they are loading
+		String[] assetPaths = new String[ASSET_FILES.length];
+		for(int i = 0; i < ASSET_FILES.length; i++) {
+			assetPaths[i] = ASSETS_PATH + ASSET_FILES[i];
+		}
+		getResourceManager().buildAtlas(assetPaths);
+		
 		if(showSpeedPanel) this.addWindow(new SpeedPanel());
 	}
 
 	@Override
 	public void onUpdate() {
-		World world = (World) instructionManager.readInstruction();
-		if(world == null) return;
+		for(;;) {
+			World world = (World) instructionManager.readInstruction();
+			if(world == null) return;
 		
-		this.addWindow(world);
-		instructionManager.finishInstruction();
+			this.markUpdateActive();
+			this.addWindow(world);
+			instructionManager.finishInstruction();
+		}
 	}
 	
 	@Override
@@ -62,6 +104,14 @@ public class RobotLoop extends GameLoop{
 		}
 	}
 	
+	/**
+	 * En modo INSTANT el ciclo Update se ejecuta sin pausas.
+	 */
+	@Override
+	protected boolean isThrottled() {
+		return playMode != INSTANT;
+	}
+	
 	//PUBLIC METHODS
 	/**
 	 * Consigue el modo de animacion actual
@@ -74,11 +124,14 @@ public class RobotLoop extends GameLoop{
 
 	/**
 	 * Setea el modo de animacion actual
+	 * <p>
+	 * En modo INSTANT no hay animaciones ni pausas entre ciclos Update: cada instruccion de un robot termina 
+	 * en el mismo ciclo Update en que se lee.
 	 * 
 	 * @param playModeIndex el modo de animacion nuevo
 	 */
 	public void setPlayMode(int playModeIndex) {
-		if(playMode >= playModeUpdateCounts.length || playMode < 0)
+		if(playModeIndex >= playModeUpdateCounts.length || playModeIndex < 0)
 			throw new IllegalArgumentException("Invalid playMode index");
 		
 		this.playMode = playModeIndex;
@@ -1,10 +1,7 @@
 package uni.robot.game;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 import uni.robot.Robot;
 import uni.robot.base.Sprite;
@@ -19,11 +16,25 @@ import uni.robot.game.robotinstruction.*;
  */
 public class RobotObject extends GridObject{
 	private static final long serialVersionUID = 1L;
+	private static final int MAX_INSTANT_TRANSITIONS = 64;
+	
+	//Robot sprite categories, in the same order as SPRITE_CATEGORIES
+	public static final int WALK_SPRITE = 0;
+	public static final int TURN_SPRITE = 1;
+	public static final int INTERACT_SPRITE = 2;
+	
+	//Robot sprites, shared by every robot through the ResourceManager
+	private static final String[] SPRITE_CATEGORIES = {"Walk", "Turn", "Interact"};
+	private static final int DIRECTIONS_COUNT = 4;
+	private static final int SPRITE_SIZE = 32;
+	private static final int SPRITE_Y_OFFSET = 10;
 	
 	private static final List<RobotInstructionHandler> instructionHandlerList = new ArrayList<>();
 	
+	//Indexed by category*DIRECTIONS_COUNT + direction, resolved once by the first robot created
+	private static volatile Sprite[] sprites = null;
+	
 	transient private RobotState state;
-	transient private Map<String, Sprite> spriteMap;
 	transient private SyncInstructionManager instructionManager;
 	
 	private final Robot robotStub;
@@ -48,11 +59,11 @@ public class RobotObject extends GridObject{
 	//BASE METHODS
 	@Override
 	public void onCreate() {
-		//Initialize sprites
+		//Load the shared sprites
 		initSprites();
 		
 		//Initialize InstructionManager, done here for serialization reasons
-		this.instructionManager = new SyncInstructionManager();
+		this.instructionManager = SyncInstructionManager.create();
 		
 		//Set initial state to Idle
 		this.state = new IdleState(this);
@@ -62,8 +73,14 @@ public class RobotObject extends GridObject{
 
 	@Override
 	public void onUpdate() {
-		RobotState newState = state.handleUpdate();
-		if(newState != state) {
+		//In INSTANT mode, keep running the new states so the instruction finishes within this update
+		boolean instant = getRobotLoop().getPlayMode() == RobotLoop.INSTANT;
+		int maxTransitions = instant ? MAX_INSTANT_TRANSITIONS : 1;
+		
+		for(int i = 0; i < maxTransitions; i++) {
+			RobotState newState = state.handleUpdate();
+			if(newState == state) return;
+			
 			state.onExit(newState);
 			newState.onEnter(state);
 			state = newState;
@@ -146,15 +163,21 @@ public class RobotObject extends GridObject{
 
 	//HELPER METHODS
 	/**
-	 * Consigue todos los conos que se encuentran en la misma posicion que este objeto.
+	 * Retorna la cantidad de conos que se encuentran en la misma posicion que este objeto.
+	 * 
+	 * @return cantidad de conos en la misma posicion que el robot.
+	 */
+	public int getConeCountInPosition() {
+		return getWorld().getConeCount(getRow(), getColumn());
+	}
+	
+	/**
+	 * Consigue el cono de mas arriba de la pila en la misma posicion que este objeto.
 	 * 
-	 * @return lista de conos en la misma posicion que el robot.
+	 * @return el cono de mas arriba, o null si no hay conos.
 	 */
-	public List<ConeObject> getConeInPosition(){
-		return getWorld().getObjectsInPosition(getRow(), getColumn()).stream()
-				.filter(o->o instanceof ConeObject)
-				.map(o-> (ConeObject) o)
-				.collect(Collectors.toList());
+	public ConeObject getTopConeInPosition() {
+		return getWorld().getTopCone(getRow(), getColumn());
 	}
 	
 	/**
@@ -173,92 +196,78 @@ public class RobotObject extends GridObject{
 		
 		//Check for walls in current position
 		//(Bonks if the wall has the same direction with the robot)
-		List<WallObject> wallInCurrentPosition = getWallInPosition(getRow(), getColumn());
-		for(WallObject wall:wallInCurrentPosition) {
-			if(wall.getDirection() == getDirection()) return false;
-		}
+		if(getWorld().hasWall(getRow(), getColumn(), getDirection())) return false;
 		
 		//Check for walls in next position
 		//(Bonks if the wall has the opposite direction with the robot)
-		List<WallObject> wallInNextPosition = getWallInPosition(rowTo, columnTo);
-		for(WallObject wall:wallInNextPosition) {
-			if(wall.getDirection() == Direction.getOpposite(getDirection())) return false;
-		}
+		if(getWorld().hasWall(rowTo, columnTo, Direction.getOpposite(getDirection()))) return false;
 		
 		return true;
 	}
 	
 	/**
-	 * Consigue un sprite de robot a partir del nombre, segun definido dentro del metodo initSprites().
+	 * Consigue un sprite de robot segun su categoria y direccion. Los sprites de giro van de la direccion pasada 
+	 * a la siguiente girando a la izquierda (ej. TURN_SPRITE y Direction.NORTH es "TurnNW"). El sprite es
+	 * compartido por todos los robots, por lo que su origen no se modifica; usar drawRobotSprite() para
+	 * dibujarlo.
 	 * 
-	 * @param name el nombre del sprite
-	 * @return
+	 * @param category la categoria: WALK_SPRITE, TURN_SPRITE o INTERACT_SPRITE
+	 * @param direction la direccion
+	 * @return el sprite compartido
 	 */
-	public Sprite getSprite(String name) {
-		return spriteMap.get(name);
+	public Sprite getSprite(int category, int direction) {
+		return sprites[category*DIRECTIONS_COUNT + direction];
+	}
+	
+	/**
+	 * Dibuja un sprite de robot, con el origen en el centro del frame desplazado hacia abajo.
+	 * 
+	 * @param sprite el sprite de robot, conseguido con getSprite()
+	 * @param frameIndex el indice del frame
+	 * @param x la posicion x
+	 * @param y la posicion y
+	 * @param scaleX la escala en x
+	 * @param scaleY la escala en y
+	 */
+	public void drawRobotSprite(Sprite sprite, int frameIndex, int x, int y, double scaleX, double scaleY) {
+		drawSprite(sprite, frameIndex, x, y, SPRITE_SIZE/2, SPRITE_SIZE/2+SPRITE_Y_OFFSET, scaleX, scaleY);
 	}
 	
 	//Private Methods
 	/**
-	 * Inicializa todos los sprites usados por el robot.
+	 * Carga todos los sprites usados por el robot, si es que otro robot no los cargo antes, y los guarda 
+	 * segun categoria y direccion.
 	 */
 	private void initSprites() {
-		spriteMap = new HashMap<>();
-		
-		final int DIRECTIONS_COUNT = 4;
-		final int SIZE = 32;
-		final int Y_OFFSET = 10;
-		
-		//Walk Sprites
-		for(int direction = 0; direction < DIRECTIONS_COUNT; direction++) {
-			char dirChar = Direction.getDirectionChar(direction);
-			final String PATH = RobotLoop.ASSETS_PATH + "robot/walk/RobotWalk" + dirChar + ".png";
-			
-			Sprite sprite = new Sprite(getResourceManager().loadImage(PATH), SIZE, SIZE);
-			sprite.setCenterAsOrigin();
-			sprite.setOrigin(sprite.getOriginX(), sprite.getOriginY()+Y_OFFSET);
-			spriteMap.put("Walk" + dirChar, sprite);
-		}
+		if(sprites != null) return;
 		
-		//Turn Sprites
-		for(int direction = 0; direction < DIRECTIONS_COUNT; direction++) {
-			int nextDirection = (direction+1)%4;
-			char dirChar = Direction.getDirectionChar(direction);
-			char nextDirChar = Direction.getDirectionChar(nextDirection);
-			final String PATH = RobotLoop.ASSETS_PATH + "robot/turn/RobotTurn" + dirChar + nextDirChar + ".png";
-			
-			Sprite sprite = new Sprite(getResourceManager().loadImage(PATH), SIZE, SIZE);
-			sprite.setCenterAsOrigin();
-			sprite.setOrigin(sprite.getOriginX(), sprite.getOriginY()+Y_OFFSET);
-			spriteMap.put("Turn"+dirChar+nextDirChar, sprite);
-		}
-		
-		//Put/Remove Sprite
-		for(int direction = 0; direction < DIRECTIONS_COUNT; direction++) {
-			char dirChar = Direction.getDirectionChar(direction);
-			final String PATH = RobotLoop.ASSETS_PATH + "robot/interact/RobotInteract" + dirChar + ".png";
-			
-			Sprite sprite = new Sprite(getResourceManager().loadImage(PATH), SIZE, SIZE);
-			sprite.setCenterAsOrigin();
-			sprite.setOrigin(sprite.getOriginX(), sprite.getOriginY()+Y_OFFSET);
-			spriteMap.put("Interact" + dirChar, sprite);
+		Sprite[] loaded = new Sprite[SPRITE_CATEGORIES.length*DIRECTIONS_COUNT];
+		for(int category = 0; category < SPRITE_CATEGORIES.length; category++) {
+			for(int direction = 0; direction < DIRECTIONS_COUNT; direction++) {
+				loaded[category*DIRECTIONS_COUNT + direction] = getResourceManager().loadSprite(
+						getSpritePath(category, direction), 
+						SPRITE_SIZE, 
+						SPRITE_SIZE
+					);
+			}
 		}
+		sprites = loaded;
 	}
-	
+		
 	/**
-	 * Consige una lista de {@link WallObject} que se encuentra en una posicion especifica.
+	 * Retorna la ruta de la imagen de un sprite de robot (ej. "RobotWalkN.png" o "RobotTurnNW.png").
 	 * 
-	 * @param row la fila a controlar
-	 * @param column la columna a controlar
-	 * @return la lista de {@link WallObject}
+	 * @param category la categoria del sprite
+	 * @param direction la direccion del sprite
+	 * @return la ruta de la imagen
 	 */
-	private List<WallObject> getWallInPosition(int row, int column){
-		return getWorld().getObjectsInPosition(row, column).stream()
-				.filter(o->o instanceof WallObject)
-				.map(o-> (WallObject) o)
-				.collect(Collectors.toList());
+	private static String getSpritePath(int category, int direction) {
+		String name = SPRITE_CATEGORIES[category] + Direction.getDirectionChar(direction);
+		if(category == TURN_SPRITE) name += Direction.getDirectionChar((direction+1)%DIRECTIONS_COUNT);
+		
+		return RobotLoop.ASSETS_PATH + "robot/" + SPRITE_CATEGORIES[category].toLowerCase() + "/Robot" + name + ".png";
 	}
-
+	
 	//STATIC METHODS
 	public static List<RobotInstructionHandler> getInstructionHandlerList(){
 		return instructionHandlerList;
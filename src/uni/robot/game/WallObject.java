@@ -25,19 +25,17 @@ public class WallObject extends GridObject{
 
 	@Override
 	public void onCreate() {	
-		this.sprite = new Sprite(getResourceManager()
-				.loadImage(IMAGE_PATH), SUBIMAGE_SIZE, SUBIMAGE_SIZE);
-		
-		sprite.setOrigin(
-				sprite.getFrame(0).getWidth()/2,
-				SPRITE_Y_ORIGIN
-			);
+		//Every wall shares the same sprite
+		this.sprite = getResourceManager().loadSprite(IMAGE_PATH, SUBIMAGE_SIZE, SUBIMAGE_SIZE);
 		
 		if(getXOffsetSign() == 0) {
 			this.setZIndex(getRowY() + getYOffsetSign() * getHalfTileSize());
 		}else {
 			this.setZIndex(getRowY() - getHalfTileSize());
 		}
+		
+		//Walls never change by themselves
+		setSleeping(true);
 	}
 
 	@Override
@@ -53,7 +51,8 @@ public class WallObject extends GridObject{
 		if(offsetX == 0) frameIndex = 0;
 		else frameIndex = 1;
 		
-		drawSprite(sprite, frameIndex, getColumnX() + offsetX, getRowY() + offsetY, 2, 2);
+		drawSprite(sprite, frameIndex, getColumnX() + offsetX, getRowY() + offsetY, 
+				SUBIMAGE_SIZE/2, SPRITE_Y_ORIGIN, 2, 2);
 	}
 
 	@Override
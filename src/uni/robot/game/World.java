@@ -23,6 +23,7 @@ import uni.robot.base.SyncInstructionManager;
  */
 public class World extends GameWindow implements Serializable{
 	private static final long serialVersionUID = 1L;
+	private static final int MAX_INSTRUCTIONS_PER_UPDATE = 256;
 	
 	transient private SyncInstructionManager instructionManager;
 	transient private WorldMap worldMap;
@@ -40,7 +41,7 @@ public class World extends GameWindow implements Serializable{
 
 	@Override
 	public void onCreate() {
-		this.instructionManager = new SyncInstructionManager();
+		this.instructionManager = SyncInstructionManager.create();
 		this.setDimension(
 				this.getColumnCount()*getTileSize() + 2*getPaddingX(), 
 				this.getRowCount()*getTileSize() + 2*getPaddingY()
@@ -49,27 +50,13 @@ public class World extends GameWindow implements Serializable{
 
 	@Override
 	public void onUpdate() {
-		Object[] args = (Object[]) instructionManager.readInstruction();
-		if(args == null) return;
+		//All the instructions of the world are answered immediately, so drain several per update
+		for(int i = 0; i < MAX_INSTRUCTIONS_PER_UPDATE; i++) {
+			Object[] args = (Object[]) instructionManager.readInstruction();
+			if(args == null) return;
 		
-		String instruction = (String) args[0];
-		switch(instruction) {
-			case "CREATE":
-				GridObject object = (GridObject) args[1];
-				if(worldMap.isValidPosition(object.getRow(), object.getColumn())) {
-					this.addObject(object);
-					instructionManager.finishInstruction();
-				}else {
-					instructionManager.finishInstruction("Posicion invalida.");
-				}
-				return;
-			case "GET_ROBOTS":
-				RobotObject[] robots = getObjects().stream()
-					.filter(o->o instanceof RobotObject)
-					.map(o->(RobotObject) o)
-					.toArray(RobotObject[]::new);
-				instructionManager.finishInstruction(robots);
-				return;
+			getGameLoop().markUpdateActive();
+			handleInstruction(args);
 		}
 	}
 	
@@ -129,6 +116,13 @@ public class World extends GameWindow implements Serializable{
 	public void addObject(GameObject object) {
 		if(object instanceof GridObject) {
 			GridObject gridObject = (GridObject) object;
+			
+			//New cones go on top of the cones already in the cell
+			if(gridObject instanceof ConeObject) {
+				int coneIndex = this.worldMap.getConeCount(gridObject.getRow(), gridObject.getColumn());
+				((ConeObject) gridObject).setConeIndex(coneIndex);
+			}
+			
 			this.worldMap.addObject(gridObject.getRow(), gridObject.getColumn(), gridObject);
 		}
 		super.addObject(object);
@@ -155,6 +149,43 @@ public class World extends GameWindow implements Serializable{
 		return this.worldMap.getObjects(row, column);
 	}
 	
+	/**
+	 * Retorna si hay una {@link WallObject} en la direccion especificada, en la posicion especificada.
+	 * 
+	 * @param row la fila a controlar
+	 * @param column la columna a controlar
+	 * @param direction la direccion de la pared
+	 * 
+	 * @return si hay una pared
+	 */
+	public boolean hasWall(int row, int column, int direction) {
+		return this.worldMap.hasWall(row, column, direction);
+	}
+	
+	/**
+	 * Retorna la cantidad de {@link ConeObject} en la posicion especificada.
+	 * 
+	 * @param row la fila a controlar
+	 * @param column la columna a controlar
+	 * 
+	 * @return la cantidad de conos
+	 */
+	public int getConeCount(int row, int column) {
+		return this.worldMap.getConeCount(row, column);
+	}
+	
+	/**
+	 * Retorna el {@link ConeObject} de mas arriba de la pila en la posicion especificada.
+	 * 
+	 * @param row la fila a controlar
+	 * @param column la columna a controlar
+	 * 
+	 * @return el cono de mas arriba, o null si no hay conos
+	 */
+	public ConeObject getTopCone(int row, int column) {
+		return this.worldMap.getTopCone(row, column);
+	}
+	
 	/**
 	 * Transforma un una columna a su equivalente posicion x, en pixeles
 	 * 
@@ -232,6 +263,36 @@ public class World extends GameWindow implements Serializable{
 	}
 	
 	//PRIVATE METHODS
+	/**
+	 * Procesa y responde una instruccion mandada por un hilo productor.
+	 * 
+	 * @param args los argumentos de la instruccion, el primero siendo el nombre de la instruccion
+	 */
+	private void handleInstruction(Object[] args) {
+		String instruction = (String) args[0];
+		switch(instruction) {
+			case "CREATE":
+				GridObject object = (GridObject) args[1];
+				if(worldMap.isValidPosition(object.getRow(), object.getColumn())) {
+					this.addObject(object);
+					instructionManager.finishInstruction();
+				}else {
+					instructionManager.finishInstruction("Posicion invalida.");
+				}
+				return;
+			case "GET_ROBOTS":
+				RobotObject[] robots = getObjects().stream()
+					.filter(o->o instanceof RobotObject)
+					.map(o->(RobotObject) o)
+					.toArray(RobotObject[]::new);
+				instructionManager.finishInstruction(robots);
+				return;
+			default:
+				System.err.println("Received Invalid World Instruction.");
+				instructionManager.finishInstruction(null);
+		}
+	}
+	
 	/**
 	 * Setea ls parametros basicos del mundo
 	 * 
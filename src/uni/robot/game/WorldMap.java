@@ -1,13 +1,33 @@
 package uni.robot.game;
 
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
 import uni.robot.base.GameObject;
+import uni.robot.base.LazyImage;
 import uni.robot.base.Sprite;
 
 /**
  * Objeto que representa las cuadriculas de un {@link World}
+ * <p>
+ * Ademas de la lista de objetos de cada celda, guarda una mascara de bits con las direcciones de las 
+ * {@link WallObject} y la cantidad de {@link ConeObject} de cada celda, para que controlar paredes y conos no 
+ * requiera recorrer ni copiar listas.
+ * <p>
+ * Las celdas se agrupan en bloques de CHUNK_SIZE x CHUNK_SIZE, que solo existen mientras contienen algun 
+ * objeto. Una celda vacia no ocupa memoria, por lo que un mundo muy grande solo ocupa memoria en proporcion a 
+ * sus objetos.
+ * <p>
+ * El estado primitivo de cada bloque (paredes, conos y ocupacion) se guarda en un {@link GridStorage}, dentro o 
+ * fuera del heap segun GridStorage.setImplementation().
+ * <p>
+ * Las celdas y los numeros de filas y columnas nunca cambian, por lo que el fondo es un solo {@link LazyImage},
+ * dividido en bloques de BACKGROUND_BLOCK_SIZE x BACKGROUND_BLOCK_SIZE pixeles que se dibujan una sola vez recien 
+ * cuando una region repintada los alcanza. Asi, un mundo muy grande solo crea los bloques visibles, y repintar 
+ * solo recorre los bloques de la region repintada.
  * 
  * @author Fabio Kita
  *
@@ -16,74 +36,76 @@ public class WorldMap extends GameObject{
 	private static final int TILE_SIZE = 48;
 	private static final int PADDING_X = 32;
 	private static final int PADDING_Y = 32;
+	private static final int SPRITE_SCALE = 2;
+	private static final int GRID_IMAGE_SUBSPRITE_SIZE = 24;
+	private static final int NUMBER_IMAGE_SUBSPRITE_SIZE = 6;
+	
+	//Width and height of each cached block of the background, 1MB of pixels each
+	private static final int BACKGROUND_BLOCK_SIZE = 512;
+	
+	//Tiles and numbers reach this many tiles outside of their cell, when drawing a single block
+	private static final int BLOCK_MARGIN_TILES = 2;
+	
+	//Must be a power of 2
+	private static final int CHUNK_SHIFT = 5;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	
+	private final int rowCount;
+	private final int columnCount;
+	
+	//Indexed by chunkRow*chunkColumnCount + chunkColumn, null while the chunk is empty
+	private final Chunk[] chunks;
+	private final int chunkColumnCount;
+	
+	//Last freed chunk, reused so a robot crossing a chunk border doesn't allocate every time
+	private Chunk spareChunk = null;
 	
-	private GridCell[][] grid;
 	private Sprite tileSprites;
 	private Sprite numberSprites;
 	
+	//Tiles and numbers pre-rendered, block by block
+	private Background background;
+	
 	public WorldMap(int rowCount, int columnCount) {
-		grid = new GridCell[rowCount][columnCount];
-		for(int i = 0; i < grid.length; i++) {
-			for(int j = 0; j < grid[i].length; j++) {
-				grid[i][j] = new GridCell();
-			}
-		}
+		this.rowCount = rowCount;
+		this.columnCount = columnCount;
+		
+		int chunkRowCount = (rowCount + CHUNK_MASK) >> CHUNK_SHIFT;
+		this.chunkColumnCount = (columnCount + CHUNK_MASK) >> CHUNK_SHIFT;
+		this.chunks = new Chunk[chunkRowCount*chunkColumnCount];
 	}
 	
 	@Override
 	public void onCreate() {
 		//Grid images
 		final String GRID_IMAGE_PATH = RobotLoop.ASSETS_PATH + "WorldTile.png";
-		final int GRID_IMAGE_SUBSPRITE_SIZE = 24;
 		
-		tileSprites = new Sprite(
-				getResourceManager().loadImage(GRID_IMAGE_PATH), 
+		tileSprites = getResourceManager().loadSprite(
+				GRID_IMAGE_PATH, 
 				GRID_IMAGE_SUBSPRITE_SIZE, 
 				GRID_IMAGE_SUBSPRITE_SIZE
 			);
 		
 		//Number Images
 		final String NUMBER_IMAGE_PATH = RobotLoop.ASSETS_PATH + "NumberSprite.png";
-		final int NUMBER_IMAGE_SUBSPRITE_SIZE = 6;
 		
-		numberSprites = new Sprite(
-				getResourceManager().loadImage(NUMBER_IMAGE_PATH),
+		numberSprites = getResourceManager().loadSprite(
+				NUMBER_IMAGE_PATH,
 				NUMBER_IMAGE_SUBSPRITE_SIZE,
 				NUMBER_IMAGE_SUBSPRITE_SIZE
 			);
-		numberSprites.setOrigin(
-				NUMBER_IMAGE_SUBSPRITE_SIZE/2, 
-				NUMBER_IMAGE_SUBSPRITE_SIZE/2
-			);
+		
+		//Background, nothing is rendered until a block is painted
+		background = new Background();
+		
+		//The grid never changes by itself
+		setSleeping(true);
 	}
 	
 	@Override
 	public void onDraw() {
-		//Draw Grid
-		final int GRID_IMAGE_DRAW_OFFSET = 1;
-		
-		for(int i = 0; i < grid.length; i++) {
-			for(int j = 0; j < grid[i].length; j++) {
-				int x = j*TILE_SIZE + PADDING_X + GRID_IMAGE_DRAW_OFFSET;
-				int y = i*TILE_SIZE + PADDING_Y + GRID_IMAGE_DRAW_OFFSET;
-				double scaleX = 2;
-				double scaleY = 2;
-				this.drawSprite(tileSprites, getTileIndex(i, j), x, y, scaleX, scaleY);
-			}
-		}
-		
-		//Draw Numbers
-		final int NUMBER_PADDING = 16;
-		
-		//Draw column index
-		for(int i = 0; i < getColumnCount(); i++) {
-			drawNumber(i, columnToX(i), rowToY(0)-NUMBER_PADDING);
-		}
-		
-		//Draw row index
-		for(int i = 0; i < getRowCount(); i++) {
-			drawNumber(i, columnToX(0)-NUMBER_PADDING, rowToY(i));
-		}
+		this.drawLazyImage(background, 0, 0);
 	}
 
 	@Override
@@ -101,7 +123,22 @@ public class WorldMap extends GameObject{
 	 * @param object el objeto a guardar
 	 */
 	public void addObject(int row, int column, GridObject object) {
-		grid[row][column].addObject(object);
+		Chunk chunk = getOrCreateChunk(row, column);
+		int index = toLocalIndex(row, column);
+		
+		if(chunk.cells[index] == null) {
+			chunk.cells[index] = new GridCell();
+			chunk.storage.setOccupied(index, true);
+		}
+		chunk.cells[index].addObject(object);
+		chunk.objectCount++;
+		
+		if(object instanceof WallObject) {
+			int direction = ((WallObject) object).getDirection();
+			chunk.storage.setWallMask(index, (byte) (chunk.storage.getWallMask(index) | (1 << direction)));
+		}else if(object instanceof ConeObject) {
+			chunk.storage.setConeCount(index, chunk.storage.getConeCount(index) + 1);
+		}
 	}
 	
 	/**
@@ -112,7 +149,31 @@ public class WorldMap extends GameObject{
 	 * @param object el objeto a remover
 	 */
 	public void removeObject(int row, int column, GridObject object) {
-		grid[row][column].removeObject(object);
+		Chunk chunk = getChunk(row, column);
+		if(chunk == null) return;
+		
+		int index = toLocalIndex(row, column);
+		GridCell cell = chunk.cells[index];
+		if(cell == null || !cell.removeObject(object)) return;
+		
+		//Another wall in the same direction may remain, so rebuild the mask of the cell
+		if(object instanceof WallObject) {
+			byte mask = 0;
+			for(GridObject remaining:cell.getObjects()) {
+				if(remaining instanceof WallObject)
+					mask |= (byte) (1 << ((WallObject) remaining).getDirection());
+			}
+			chunk.storage.setWallMask(index, mask);
+		}else if(object instanceof ConeObject) {
+			chunk.storage.setConeCount(index, chunk.storage.getConeCount(index) - 1);
+		}
+		
+		//Free the empty cell, and the chunk if it's also empty
+		if(cell.isEmpty()) {
+			chunk.cells[index] = null;
+			chunk.storage.setOccupied(index, false);
+		}
+		if(--chunk.objectCount == 0) removeChunk(row, column);
 	}
 	
 	/**
@@ -123,7 +184,56 @@ public class WorldMap extends GameObject{
 	 * @return la lista de objetos
 	 */
 	public List<GridObject> getObjects(int row, int column) {
-		return grid[row][column].getObjects();
+		Chunk chunk = getChunk(row, column);
+		if(chunk == null) return new LinkedList<>();
+		
+		int index = toLocalIndex(row, column);
+		if(!chunk.storage.isOccupied(index)) return new LinkedList<>();
+		
+		return chunk.cells[index].getObjects();
+	}
+	
+	/**
+	 * Retorna si hay una {@link WallObject} en la direccion especificada dentro de una celda.
+	 * 
+	 * @param row la fila 
+	 * @param column la columna
+	 * @param direction la direccion de la pared
+	 * @return si hay una pared
+	 */
+	public boolean hasWall(int row, int column, int direction) {
+		Chunk chunk = getChunk(row, column);
+		if(chunk == null) return false;
+		return (chunk.storage.getWallMask(toLocalIndex(row, column)) & (1 << direction)) != 0;
+	}
+	
+	/**
+	 * Retorna la cantidad de {@link ConeObject} dentro de una celda.
+	 * 
+	 * @param row la fila 
+	 * @param column la columna
+	 * @return la cantidad de conos
+	 */
+	public int getConeCount(int row, int column) {
+		Chunk chunk = getChunk(row, column);
+		if(chunk == null) return 0;
+		return chunk.storage.getConeCount(toLocalIndex(row, column));
+	}
+	
+	/**
+	 * Retorna el ultimo {@link ConeObject} agregado a una celda, es decir, el de mas arriba de la pila.
+	 * 
+	 * @param row la fila 
+	 * @param column la columna
+	 * @return el ultimo cono, o null si no hay conos
+	 */
+	public ConeObject getTopCone(int row, int column) {
+		Chunk chunk = getChunk(row, column);
+		if(chunk == null) return null;
+		
+		int index = toLocalIndex(row, column);
+		if(chunk.storage.getConeCount(index) == 0) return null;
+		return chunk.cells[index].getLastCone();
 	}
 	
 	//GRID METHODS
@@ -132,7 +242,7 @@ public class WorldMap extends GameObject{
 	 * @return la cantidad de filas
 	 */
 	public int getRowCount() {
-		return grid.length;
+		return rowCount;
 	}
 	
 	/**
@@ -140,7 +250,7 @@ public class WorldMap extends GameObject{
 	 * @return la cantidad de columnas
 	 */
 	public int getColumnCount() {
-		return grid[0].length;
+		return columnCount;
 	}
 	
 	/**
@@ -199,16 +309,91 @@ public class WorldMap extends GameObject{
 	}
 	
 	//PRIVATE METHODS
+	//Chunks
+	private int toChunkIndex(int row, int column) {
+		return (row >> CHUNK_SHIFT)*chunkColumnCount + (column >> CHUNK_SHIFT);
+	}
+	
+	private int toLocalIndex(int row, int column) {
+		return ((row & CHUNK_MASK) << CHUNK_SHIFT) | (column & CHUNK_MASK);
+	}
+	
+	private Chunk getChunk(int row, int column) {
+		return chunks[toChunkIndex(row, column)];
+	}
+	
+	private Chunk getOrCreateChunk(int row, int column) {
+		int chunkIndex = toChunkIndex(row, column);
+		if(chunks[chunkIndex] == null) {
+			if(spareChunk != null) {
+				chunks[chunkIndex] = spareChunk;
+				spareChunk = null;
+			}else {
+				chunks[chunkIndex] = new Chunk();
+			}
+		}
+		return chunks[chunkIndex];
+	}
+	
+	//An empty chunk has all of its cells and storage cleared, so it can be reused as is
+	private void removeChunk(int row, int column) {
+		int chunkIndex = toChunkIndex(row, column);
+		spareChunk = chunks[chunkIndex];
+		chunks[chunkIndex] = null;
+	}
+	
+	//Grid
+	/**
+	 * Dibuja las celdas y numeros que pueden alcanzar el rectangulo pasado, sin contar los demas.
+	 */
+	private void drawGrid(SpriteDrawer drawer, int minX, int minY, int maxX, int maxY) {
+		int firstColumn = Math.max(0, Math.floorDiv(minX - PADDING_X, TILE_SIZE) - BLOCK_MARGIN_TILES);
+		int lastColumn = Math.min(columnCount - 1, Math.floorDiv(maxX - PADDING_X, TILE_SIZE) + BLOCK_MARGIN_TILES);
+		int firstRow = Math.max(0, Math.floorDiv(minY - PADDING_Y, TILE_SIZE) - BLOCK_MARGIN_TILES);
+		int lastRow = Math.min(rowCount - 1, Math.floorDiv(maxY - PADDING_Y, TILE_SIZE) + BLOCK_MARGIN_TILES);
+		
+		//Draw Grid
+		final int GRID_IMAGE_DRAW_OFFSET = 1;
+		
+		for(int i = firstRow; i <= lastRow; i++) {
+			for(int j = firstColumn; j <= lastColumn; j++) {
+				int x = j*TILE_SIZE + PADDING_X + GRID_IMAGE_DRAW_OFFSET;
+				int y = i*TILE_SIZE + PADDING_Y + GRID_IMAGE_DRAW_OFFSET;
+				drawer.draw(tileSprites, getTileIndex(i, j), x, y, 0, 0);
+			}
+		}
+		
+		//Draw Numbers
+		final int NUMBER_PADDING = 16;
+		
+		//Draw column index
+		for(int i = firstColumn; i <= lastColumn; i++) {
+			drawNumber(drawer, i, columnToX(i), rowToY(0)-NUMBER_PADDING);
+		}
+		
+		//Draw row index
+		for(int i = firstRow; i <= lastRow; i++) {
+			drawNumber(drawer, i, columnToX(0)-NUMBER_PADDING, rowToY(i));
+		}
+	}
+	
 	//Numbers
-	private void drawNumber(int number, int x, int y) {
+	private void drawNumber(SpriteDrawer drawer, int number, int x, int y) {
 		final int WIDTH_OFFSET = 2;
-		final int NUMBER_WIDTH = numberSprites.getFrame(0).getWidth()*2-WIDTH_OFFSET;
+		final int NUMBER_WIDTH = numberSprites.getFrame(0).getWidth()*SPRITE_SCALE-WIDTH_OFFSET;
 		String numberString = String.valueOf(number);
 		for(int i = 0; i < numberString.length(); i++) {
 			//transformation of the formula = ((1-n)/2 + i) * width;
 			int offsetX = (1-numberString.length())*NUMBER_WIDTH/2+i*NUMBER_WIDTH;
 			String numberToDraw = numberString.substring(i, i+1);
-			drawSprite(numberSprites, Integer.parseInt(numberToDraw), x+offsetX, y, 2, 2);
+			drawer.draw(
+					numberSprites, 
+					Integer.parseInt(numberToDraw), 
+					x+offsetX, 
+					y, 
+					NUMBER_IMAGE_SUBSPRITE_SIZE/2, 
+					NUMBER_IMAGE_SUBSPRITE_SIZE/2
+				);
 		}
 	}
 	
@@ -219,9 +404,6 @@ public class WorldMap extends GameObject{
 		final int[] HORIZONTAL_INDEX_MAP = {12, 13, 14};
 		final int POINT_INDEX = 15;
 		
-		int rowCount = grid.length;
-		int columnCount = grid[row].length;
-		
 		//Point grid
 		if(rowCount == 1 && columnCount == 1) return POINT_INDEX;
 		
@@ -244,19 +426,83 @@ public class WorldMap extends GameObject{
 	}
 	
 	//LOCAL CLASS
-	private class GridCell{
-		private List<GridObject> list = new LinkedList<>();
+	/**
+	 * Dibuja un frame de un {@link Sprite}, escalado por SPRITE_SCALE, sobre un bloque del fondo. El origen se 
+	 * pasa aparte, ya que los sprites son compartidos.
+	 */
+	private interface SpriteDrawer{
+		public void draw(Sprite sprite, int frameIndex, int x, int y, int originX, int originY);
+	}
+	
+	/**
+	 * Fondo del tamanho de la grilla mas sus margenes, cuyos bloques dibujan las celdas y numeros que los 
+	 * alcanzan la primera vez que se pintan.
+	 */
+	private class Background extends LazyImage{
+		public Background() {
+			super(columnCount*TILE_SIZE + 2*PADDING_X, rowCount*TILE_SIZE + 2*PADDING_Y, BACKGROUND_BLOCK_SIZE);
+		}
+		
+		@Override
+		protected BufferedImage createBlock(int x, int y, int width, int height) {
+			BufferedImage image = getResourceManager().createCompatibleImage(width, height);
+			Graphics2D g = image.createGraphics();
+			try {
+				g.translate(-x, -y);
+				drawGrid((sprite, frameIndex, drawX, drawY, originX, originY) -> {
+					BufferedImage frame = sprite.getFrame(frameIndex);
+					g.drawImage(
+							frame, 
+							drawX - originX*SPRITE_SCALE, 
+							drawY - originY*SPRITE_SCALE, 
+							frame.getWidth()*SPRITE_SCALE, 
+							frame.getHeight()*SPRITE_SCALE, 
+							null
+						);
+				}, x, y, x + width, y + height);
+			}finally {
+				g.dispose();
+			}
+			return image;
+		}
+	}
+	
+	/**
+	 * Bloque de CHUNK_SIZE x CHUNK_SIZE celdas. Las celdas sin objetos son null.
+	 */
+	private static class Chunk{
+		private final GridCell[] cells = new GridCell[CHUNK_SIZE*CHUNK_SIZE];
+		private final GridStorage storage = GridStorage.create(CHUNK_SIZE*CHUNK_SIZE);
+		
+		private int objectCount = 0;
+	}
+	
+	private static class GridCell{
+		private LinkedList<GridObject> list = new LinkedList<>();
 		
 		public synchronized void addObject(GridObject gridObject) {
 			list.add(gridObject);
 		}
 		
-		public synchronized void removeObject(GridObject gridObject) {
-			list.remove(gridObject);
+		public synchronized boolean removeObject(GridObject gridObject) {
+			return list.remove(gridObject);
+		}
+		
+		public synchronized boolean isEmpty() {
+			return list.isEmpty();
 		}
 		
 		public synchronized List<GridObject> getObjects(){
 			return new LinkedList<>(list);
 		}
+		
+		public synchronized ConeObject getLastCone() {
+			Iterator<GridObject> iterator = list.descendingIterator();
+			while(iterator.hasNext()) {
+				GridObject gridObject = iterator.next();
+				if(gridObject instanceof ConeObject) return (ConeObject) gridObject;
+			}
+			return null;
+		}
 	}
 }
@@ -28,7 +28,7 @@ public class BaseInstructionHandler extends RobotInstructionHandler {
 			case "GET_ROW": return robot.getRow();
 			case "GET_COLUMN": return robot.getColumn();
 			case "GET_DIRECTION": return robot.getDirection();
-			case "IS_CONE": return !robot.getConeInPosition().isEmpty();
+			case "IS_CONE": return robot.getConeCountInPosition() > 0;
 			case "GET_CONE_COUNT": return robot.getConeCount();
 			case "GET_CONE_CAPACITY": return robot.getCapacity();
 			case "CAN_MOVE_FORWARD": return robot.canMoveForward();
@@ -1,6 +1,6 @@
 package uni.robot.game.robotinstruction;
 
-import uni.robot.game.Direction;
+import uni.robot.base.Sprite;
 import uni.robot.game.RobotLoop;
 import uni.robot.game.RobotObject;
 
@@ -14,6 +14,7 @@ import uni.robot.game.RobotObject;
  */
 public class IdleState extends RobotState{
 	private static final int IMAGE_SCALE = 2;
+	private static final int MAX_INSTRUCTIONS_PER_UPDATE = 64;
 	
 	public IdleState(RobotObject robot) {
 		super(robot);
@@ -24,11 +25,37 @@ public class IdleState extends RobotState{
 		//RETURN THIS IF THE GAME IS PAUSED
 		if(getRobot().getRobotLoop().getPlayMode() == RobotLoop.PAUSED) return this;
 		
-		//READ INSTRUCTION
-		String message = (String) readInstruction();
-		if(message == null) return this;
+		//Sensor instructions are answered immediately, so keep reading until an action instruction arrives
+		for(int i = 0; i < MAX_INSTRUCTIONS_PER_UPDATE; i++) {
+			//READ INSTRUCTION
+			String message = (String) readInstruction();
+			if(message == null) return this;
 		
-		//HANDLE INSTRUCTION
+			//HANDLE INSTRUCTION
+			RobotState newState = handleInstruction(message);
+			if(newState != this) return newState;
+		}
+		
+		return this;
+	}
+
+	@Override
+	public void handleDraw() {
+		Sprite sprite = getRobot().getSprite(RobotObject.WALK_SPRITE, getRobot().getDirection());
+		
+		int x = getRobot().getColumnX();
+		int y = getRobot().getRowY();
+		
+		getRobot().drawRobotSprite(sprite, 0, x, y, IMAGE_SCALE, IMAGE_SCALE);
+	}
+	
+	/**
+	 * Procesa una instruccion. Las instrucciones sensores se responden inmediatamente.
+	 * 
+	 * @param message la instruccion a procesar
+	 * @return el estado nuevo si la instruccion es una accion, o this si no.
+	 */
+	private RobotState handleInstruction(String message) {
 		for(RobotInstructionHandler instructionHandler:RobotObject.getInstructionHandlerList()) {
 			//HANDLE ACTION
 			RobotState newState = instructionHandler.handleActionInstruction(getRobot(), message);
@@ -48,15 +75,4 @@ public class IdleState extends RobotState{
 		return this;
 	}
 
-	@Override
-	public void handleDraw() {
-		char dirChar = Direction.getDirectionChar(getRobot().getDirection());
-		String spriteName = "Walk" + dirChar;
-		
-		int x = getRobot().getColumnX();
-		int y = getRobot().getRowY();
-		
-		getRobot().drawSprite(getRobot().getSprite(spriteName), 0, x, y, IMAGE_SCALE, IMAGE_SCALE);
-	}
-	
 }
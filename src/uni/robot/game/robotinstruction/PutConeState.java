@@ -3,7 +3,6 @@ package uni.robot.game.robotinstruction;
 import uni.robot.base.Sprite;
 import uni.robot.base.SpritePlayer;
 import uni.robot.game.ConeObject;
-import uni.robot.game.Direction;
 import uni.robot.game.RobotObject;
 
 /**
@@ -27,8 +26,7 @@ public class PutConeState extends RobotState{
 		super(robot);
 		
 		//Set animation
-		char dirChar = Direction.getDirectionChar(getRobot().getDirection());
-		Sprite sprite = robot.getSprite("Interact" + dirChar);
+		Sprite sprite = robot.getSprite(RobotObject.INTERACT_SPRITE, getRobot().getDirection());
 		spritePlayer = new SpritePlayer(sprite, ANIM_SPEED);
 	}
 
@@ -71,7 +69,7 @@ public class PutConeState extends RobotState{
 	public void handleDraw() {
 		int x = getRobot().getColumnX();
 		int y = getRobot().getRowY();
-		getRobot().drawSprite(spritePlayer.getSprite(), spritePlayer.getCurrentFrameIndex(), 
+		getRobot().drawRobotSprite(spritePlayer.getSprite(), spritePlayer.getCurrentFrameIndex(), 
 				x, y, IMAGE_SCALE, IMAGE_SCALE);
 	}
 	
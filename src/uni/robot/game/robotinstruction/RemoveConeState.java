@@ -1,11 +1,8 @@
 package uni.robot.game.robotinstruction;
 
-import java.util.List;
-
 import uni.robot.base.Sprite;
 import uni.robot.base.SpritePlayer;
 import uni.robot.game.ConeObject;
-import uni.robot.game.Direction;
 import uni.robot.game.RobotObject;
 
 /**
@@ -28,8 +25,7 @@ public class RemoveConeState extends RobotState{
 	public RemoveConeState(RobotObject robot) {
 		super(robot);
 
-		char dirChar = Direction.getDirectionChar(getRobot().getDirection());
-		Sprite sprite = robot.getSprite("Interact" + dirChar);
+		Sprite sprite = robot.getSprite(RobotObject.INTERACT_SPRITE, getRobot().getDirection());
 		spritePlayer = new SpritePlayer(sprite, ANIM_SPEED);
 	}
 
@@ -72,24 +68,24 @@ public class RemoveConeState extends RobotState{
 	public void handleDraw() {
 		int x = getRobot().getColumnX();
 		int y = getRobot().getRowY();
-		getRobot().drawSprite(spritePlayer.getSprite(), spritePlayer.getCurrentFrameIndex(), 
+		getRobot().drawRobotSprite(spritePlayer.getSprite(), spritePlayer.getCurrentFrameIndex(), 
 				x, y, IMAGE_SCALE, IMAGE_SCALE);
 	}
 	
 	private void handleRemoveCone() throws NoConeInPositionException, NoSpaceForConeException {
 		if(removedCone) return;
 		
-		List<ConeObject> coneList = getRobot().getConeInPosition();
+		ConeObject topCone = getRobot().getTopConeInPosition();
 		
 		//Check for errors
-		if(coneList.isEmpty()) {
+		if(topCone == null) {
 			throw new NoConeInPositionException();
 		}else if(getRobot().getConeCount() >= getRobot().getCapacity()) {
 			throw new NoSpaceForConeException();
 		}
 		
 		//Remove cone
-		coneList.get(coneList.size()-1).destroy();
+		topCone.destroy();
 		getRobot().setConeCount(getRobot().getConeCount() + 1);
 		removedCone = true;
 	}
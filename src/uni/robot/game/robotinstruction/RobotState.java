@@ -26,12 +26,12 @@ public abstract class RobotState{
 	}
 	
 	/**
-	 * Retorna si el juego esta en modo avance rapido
+	 * Retorna si el juego esta en modo avance rapido (o instantaneo), es decir, si se saltean las animaciones.
 	 * @return
 	 */
 	protected boolean isFastForward() {
 		int currentPlayMode = getRobot().getRobotLoop().getPlayMode();
-		return currentPlayMode == RobotLoop.FAST_FAST_FORWARD;
+		return currentPlayMode == RobotLoop.FAST_FAST_FORWARD || currentPlayMode == RobotLoop.INSTANT;
 	}
 	
 	/**
@@ -41,7 +41,9 @@ public abstract class RobotState{
 	 * @return el mensaje de la intruccion.
 	 */
 	protected Object readInstruction() {
-		return robot.getInstructionManager().readInstruction();
+		Object message = robot.getInstructionManager().readInstruction();
+		if(message != null) robot.getRobotLoop().markUpdateActive();
+		return message;
 	}
 	
 	/**
@@ -22,12 +22,8 @@ public class TurnLeftState extends RobotState{
 		
 		//Set Animation
 		int fromDir = robot.getDirection();
-		int toDir = Direction.rotateLeft(fromDir);
 		
-		char fromDirChar = Direction.getDirectionChar(fromDir);
-		char toDirChar = Direction.getDirectionChar(toDir);
-		
-		Sprite sprite = robot.getSprite("Turn"+fromDirChar+toDirChar);
+		Sprite sprite = robot.getSprite(RobotObject.TURN_SPRITE, fromDir);
 		spritePlayer = new SpritePlayer(sprite, ANIM_SPEED);
 	}
 
@@ -58,7 +54,7 @@ public class TurnLeftState extends RobotState{
 	public void handleDraw() {
 		int x = getRobot().getColumnX();
 		int y = getRobot().getRowY();
-		getRobot().drawSprite(spritePlayer.getSprite(), spritePlayer.getCurrentFrameIndex(), 
+		getRobot().drawRobotSprite(spritePlayer.getSprite(), spritePlayer.getCurrentFrameIndex(), 
 				x, y, IMAGE_SCALE, IMAGE_SCALE);
 	}
 	
@@ -23,10 +23,8 @@ public class TurnRightState extends RobotState{
 		int fromDir = getRobot().getDirection();
 		int toDir = Direction.rotateRight(fromDir);
 		
-		char fromDirChar = Direction.getDirectionChar(fromDir);
-		char toDirChar = Direction.getDirectionChar(toDir);
-		
-		Sprite sprite = robot.getSprite("Turn"+toDirChar+fromDirChar);
+		//Played backwards, from the end of the left turn that ends here
+		Sprite sprite = robot.getSprite(RobotObject.TURN_SPRITE, toDir);
 		spritePlayer = new SpritePlayer(sprite, ANIM_SPEED, sprite.getFrameCount()-1);
 	}
 
@@ -57,7 +55,7 @@ public class TurnRightState extends RobotState{
 	public void handleDraw() {
 		int x = getRobot().getColumnX();
 		int y = getRobot().getRowY();
-		getRobot().drawSprite(spritePlayer.getSprite(), spritePlayer.getCurrentFrameIndex(), 
+		getRobot().drawRobotSprite(spritePlayer.getSprite(), spritePlayer.getCurrentFrameIndex(), 
 				x, y, IMAGE_SCALE, IMAGE_SCALE);
 	}
 	
@@ -51,9 +51,7 @@ public class WalkState extends RobotState{
 		
 		if(!getRobot().canMoveForward()) fail = true;
 		
-		char dirChar = Direction.getDirectionChar(direction);
-		String spriteName = "Walk" + dirChar;
-		spritePlayer = new SpritePlayer(getRobot().getSprite(spriteName), ANIM_SPEED);
+		spritePlayer = new SpritePlayer(getRobot().getSprite(RobotObject.WALK_SPRITE, direction), ANIM_SPEED);
 	}
 
 	@Override
@@ -89,7 +87,7 @@ public class WalkState extends RobotState{
 	public void handleDraw() {
 		int x = (int) Math.round(this.x);
 		int y = (int) Math.round(this.y);
-		getRobot().drawSprite(spritePlayer.getSprite(), spritePlayer.getCurrentFrameIndex(), 
+		getRobot().drawRobotSprite(spritePlayer.getSprite(), spritePlayer.getCurrentFrameIndex(), 
 				x, y, IMAGE_SCALE, IMAGE_SCALE);
 	}
 	
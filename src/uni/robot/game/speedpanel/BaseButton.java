@@ -90,8 +90,7 @@ abstract class BaseButton extends GameObject {
 	 * @param playMode el modo de juego que representa el boton
 	 */
 	protected void setParameters(String path, int playMode) {
-		this.sprite = new Sprite(getResourceManager().loadImage(path), 
-				SUBSPRITE_SIZE, SUBSPRITE_SIZE);
+		this.sprite = getResourceManager().loadSprite(path, SUBSPRITE_SIZE, SUBSPRITE_SIZE);
 		this.playMode = playMode;
 	}
 	
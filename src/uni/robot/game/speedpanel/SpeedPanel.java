@@ -27,7 +27,7 @@ public class SpeedPanel extends GameWindow{
 		//Set Window parameter
 		setTitle("Panel de Velocidad");
 		setDimension(PAD_X*2 + WIDTH*buttons.length, PAD_Y*2+HEIGHT);
-		this.getFrame().setLocation(0, 0);
+		if(!isHeadless()) this.getFrame().setLocation(0, 0);
 		
 		//Set Buttons
 		for(int i = 0; i < buttons.length; i++) {